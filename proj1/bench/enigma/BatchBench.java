@@ -0,0 +1,100 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Time to convert a batch of short messages, each from its own starting
+ *  positions, one at a time through MachineState cursors (the scalar
+ *  path) and all together through a BatchEncoder.  Each invocation
+ *  converts the batch in place, so the messages alternate between
+ *  plaintext and ciphertext; the work is the same either way.
+ *  @author Arthur Utnehmer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBench {
+
+    /** Number of characters in the alphabet. */
+    @Param({ "26", "256" })
+    public int alphabetSize;
+
+    /** Number of rotor slots, including the reflector. */
+    @Param({ "5" })
+    public int numRotors;
+
+    /** Number of messages in the batch. */
+    @Param({ "1024" })
+    public int messages;
+
+    /** Characters per message. */
+    @Param({ "32", "256" })
+    public int messageLength;
+
+    /** Build the spec, messages, and starting positions. */
+    @Setup
+    public void setUp() {
+        Machine machine = BenchSupport.machine(alphabetSize, numRotors,
+                                               BenchSupport.SEED);
+        _spec = machine.spec();
+        _batch = new BatchEncoder(_spec);
+        _messages = new char[messages][];
+        _starts = new int[messages][];
+        Random random = new Random(BenchSupport.SEED);
+        for (int i = 0; i < messages; i++) {
+            _messages[i] = BenchSupport.message(machine.alphabet(),
+                                                messageLength,
+                                                BenchSupport.SEED + i);
+            _starts[i] = _spec.startPositions();
+            for (int k = 1; k < _starts[i].length; k++) {
+                _starts[i][k] = random.nextInt(alphabetSize);
+            }
+        }
+    }
+
+    /** Convert each message through its own cursor. */
+    @Benchmark
+    public char[][] scalar() {
+        for (int i = 0; i < messages; i++) {
+            char[] msg = _messages[i];
+            new MachineState(_spec, _starts[i])
+                .convert(msg, 0, msg.length, msg, 0);
+        }
+        return _messages;
+    }
+
+    /** Convert all the messages as one batch. */
+    @Benchmark
+    public char[][] batch() {
+        _batch.convert(_messages, _starts, null);
+        return _messages;
+    }
+
+    /** Shared configuration. */
+    private MachineSpec _spec;
+
+    /** Encoder under test. */
+    private BatchEncoder _batch;
+
+    /** Messages, converted in place. */
+    private char[][] _messages;
+
+    /** Starting positions of each message. */
+    private int[][] _starts;
+
+}
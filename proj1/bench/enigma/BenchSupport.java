@@ -0,0 +1,156 @@
+package enigma;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/** Generated alphabets, configurations, and messages for the
+ *  benchmarks.  Everything is derived from a seed, so every run of a
+ *  benchmark sees the same data.
+ *  @author Arthur Utnehmer
+ */
+final class BenchSupport {
+
+    /** Not instantiable. */
+    private BenchSupport() {
+    }
+
+    /** Return an alphabet string of SIZE distinct printable characters,
+     *  none of them whitespace, '(', ')', or '*': the ASCII letters,
+     *  then the digits, then other letters and digits beyond ASCII. */
+    static String alphabet(int size) {
+        StringBuilder result = new StringBuilder(
+            LETTERS_AND_DIGITS.substring(0, Math.min(size,
+                                         LETTERS_AND_DIGITS.length())));
+        for (char ch = ASCII_END; result.length() < size; ch += 1) {
+            if (Character.isLetterOrDigit(ch)) {
+                result.append(ch);
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return a random permutation of ALPHABET in cycle notation,
+     *  using RANDOM.  If INVOLUTION, every cycle has two characters (and
+     *  one character is left fixed if ALPHABET has odd length). */
+    static String cycles(String alphabet, Random random,
+                         boolean involution) {
+        ArrayList<Character> chars = new ArrayList<Character>();
+        for (char ch : alphabet.toCharArray()) {
+            chars.add(ch);
+        }
+        Collections.shuffle(chars, random);
+        StringBuilder result = new StringBuilder("(");
+        for (int k = 0; k < chars.size(); k++) {
+            if (involution && k > 0 && k % 2 == 0) {
+                result.append(") (");
+            }
+            result.append(chars.get(k));
+        }
+        return result.append(')').toString();
+    }
+
+    /** Return the text of a configuration over an alphabet of
+     *  ALPHABETSIZE characters with NUMROTORS slots: a reflector, a fixed
+     *  rotor, and NUMROTORS - 2 moving rotors with one notch each, all
+     *  with random wirings derived from SEED. */
+    static String config(int alphabetSize, int numRotors, long seed) {
+        Random random = new Random(seed);
+        String alphabet = alphabet(alphabetSize);
+        StringBuilder result = new StringBuilder();
+        result.append(alphabet).append('\n');
+        result.append(numRotors).append(' ').append(numRotors - 2)
+            .append('\n');
+        result.append("B R ").append(cycles(alphabet, random, true))
+            .append('\n');
+        result.append("F N ").append(cycles(alphabet, random, false))
+            .append('\n');
+        for (int k = 1; k <= numRotors - 2; k++) {
+            result.append('M').append(k).append(" M")
+                .append(alphabet.charAt(random.nextInt(alphabetSize)))
+                .append(' ').append(cycles(alphabet, random, false))
+                .append('\n');
+        }
+        return result.toString();
+    }
+
+    /** Return the setting line inserting every rotor of a configuration
+     *  from config(ALPHABETSIZE, NUMROTORS, SEED), at random positions
+     *  and with a random plugboard.  The plugboard pairs only letters,
+     *  the only characters Main accepts in plugboard cycles. */
+    static String setting(int alphabetSize, int numRotors, long seed) {
+        Random random = new Random(seed);
+        String alphabet = alphabet(alphabetSize);
+        StringBuilder result = new StringBuilder("* B F");
+        for (int k = 1; k <= numRotors - 2; k++) {
+            result.append(" M").append(k);
+        }
+        result.append(' ');
+        for (int k = 1; k < numRotors; k++) {
+            result.append(alphabet.charAt(random.nextInt(alphabetSize)));
+        }
+        int letters = Math.min(alphabetSize, LETTERS) / 2 * 2;
+        String pairs = cycles(alphabet.substring(0, letters), random, true);
+        return result.append(' ')
+            .append(pairs, 0, Math.min(pairs.length(), PLUG_PAIRS * 5 - 1))
+            .toString();
+    }
+
+    /** Return a machine configured as by config(ALPHABETSIZE, NUMROTORS,
+     *  SEED) and set up as by setting(...) with the same arguments. */
+    static Machine machine(int alphabetSize, int numRotors, long seed) {
+        Machine result =
+            new ConfigParser(new StringReader(config(alphabetSize,
+                                                     numRotors, seed)),
+                             1 << 12).parse();
+        String[] words = setting(alphabetSize, numRotors, seed)
+            .substring(2).split(" ", numRotors + 2);
+        String[] names = new String[numRotors];
+        System.arraycopy(words, 0, names, 0, numRotors);
+        result.insertRotors(names);
+        result.setRotors(words[numRotors]);
+        result.setPlugboard(new Permutation(words[numRotors + 1],
+                                            result.alphabet()));
+        return result;
+    }
+
+    /** Return a message of LENGTH random characters of ALPHABET derived
+     *  from SEED. */
+    static char[] message(Alphabet alphabet, int length, long seed) {
+        Random random = new Random(seed);
+        char[] result = new char[length];
+        for (int k = 0; k < length; k++) {
+            result[k] = alphabet.toChar(random.nextInt(alphabet.size()));
+        }
+        return result;
+    }
+
+    /** Return LENGTH random indices into an alphabet of SIZE characters,
+     *  derived from SEED. */
+    static int[] indices(int size, int length, long seed) {
+        Random random = new Random(seed);
+        int[] result = new int[length];
+        for (int k = 0; k < length; k++) {
+            result[k] = random.nextInt(size);
+        }
+        return result;
+    }
+
+    /** Seed of all generated data. */
+    static final long SEED = 61;
+
+    /** Number of plugboard pairs in generated settings. */
+    private static final int PLUG_PAIRS = 10;
+
+    /** The ASCII letters followed by the digits. */
+    private static final String LETTERS_AND_DIGITS =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    /** Number of letters at the start of LETTERS_AND_DIGITS. */
+    private static final int LETTERS = 52;
+
+    /** First character beyond ASCII. */
+    private static final char ASCII_END = 0x80;
+
+}
@@ -0,0 +1,80 @@
+package enigma;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Time per call of the Machine operations on the conversion path, on
+ *  generated configurations.  The machine is never reset, so its rotors
+ *  move through their positions as they would in a long message.
+ *  @author Arthur Utnehmer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MachineBench {
+
+    /** Number of characters in the alphabet. */
+    @Param({ "26", "256" })
+    public int alphabetSize;
+
+    /** Number of rotor slots, including the reflector. */
+    @Param({ "3", "5", "8" })
+    public int numRotors;
+
+    /** Number of characters converted by convertString. */
+    @Param({ "64", "65536" })
+    public int messageLength;
+
+    /** Build the machine and message. */
+    @Setup
+    public void setUp() {
+        _machine = BenchSupport.machine(alphabetSize, numRotors,
+                                        BenchSupport.SEED);
+        _message = new String(BenchSupport.message(_machine.alphabet(),
+                                                   messageLength,
+                                                   BenchSupport.SEED));
+        _input = _machine.alphabet().size() / 2;
+    }
+
+    /** Step the rotors once. */
+    @Benchmark
+    public void advanceRotors() {
+        _machine.advanceRotors();
+    }
+
+    /** Convert one index. */
+    @Benchmark
+    public int convertInt() {
+        return _machine.convert(_input);
+    }
+
+    /** Convert the whole message. */
+    @Benchmark
+    public String convertString() {
+        return _machine.convert(_message);
+    }
+
+    /** Machine under test. */
+    private Machine _machine;
+
+    /** Message converted by convertString. */
+    private String _message;
+
+    /** Index converted by convertInt. */
+    private int _input;
+
+}
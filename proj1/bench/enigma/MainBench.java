@@ -0,0 +1,101 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Time for Main to read a generated configuration and input file and
+ *  write the converted messages to an output file, all within one JVM
+ *  (so JVM startup is excluded).  The input is one setting line
+ *  followed by message lines of LINE_LENGTH characters.  Alphabets are
+ *  limited to ASCII letters and digits, which is all that rotor
+ *  positions accept, and the plugboard pairs only letters, as Main
+ *  requires of plugboard cycles.
+ *  @author Arthur Utnehmer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MainBench {
+
+    /** Number of characters in the alphabet. */
+    @Param({ "26", "62" })
+    public int alphabetSize;
+
+    /** Number of rotor slots, including the reflector. */
+    @Param({ "3", "5", "8" })
+    public int numRotors;
+
+    /** Number of message characters in the input. */
+    @Param({ "1024", "1048576" })
+    public int messageLength;
+
+    /** Write the configuration and input files. */
+    @Setup
+    public void setUp() throws IOException {
+        _dir = Files.createTempDirectory("enigma-bench");
+        _config = _dir.resolve("bench.conf");
+        _input = _dir.resolve("bench.in");
+        _output = _dir.resolve("bench.out");
+        Charset charset = Charset.defaultCharset();
+        Files.write(_config, BenchSupport.config(alphabetSize, numRotors,
+                                                 BenchSupport.SEED)
+                    .getBytes(charset));
+        String alphabet = BenchSupport.alphabet(alphabetSize);
+        char[] msg = BenchSupport.message(new Alphabet(alphabet),
+                                          messageLength, BenchSupport.SEED);
+        StringBuilder input = new StringBuilder();
+        input.append(BenchSupport.setting(alphabetSize, numRotors,
+                                          BenchSupport.SEED)).append('\n');
+        for (int k = 0; k < msg.length; k += LINE_LENGTH) {
+            input.append(msg, k, Math.min(LINE_LENGTH, msg.length - k))
+                .append('\n');
+        }
+        Files.write(_input, input.toString().getBytes(charset));
+    }
+
+    /** Remove the generated files. */
+    @TearDown
+    public void tearDown() throws IOException {
+        for (Path file : Arrays.asList(_config, _input, _output)) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(_dir);
+    }
+
+    /** Configure, convert the input, and write the output. */
+    @Benchmark
+    public void process() {
+        new Main(Arrays.asList(_config.toString(), _input.toString(),
+                               _output.toString())).process();
+    }
+
+    /** Number of message characters on each input line. */
+    private static final int LINE_LENGTH = 72;
+
+    /** Directory holding the generated files. */
+    private Path _dir;
+
+    /** Generated configuration, input, and output files. */
+    private Path _config, _input, _output;
+
+}
@@ -0,0 +1,77 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Throughput of Permutation.permute and Permutation.invert on indices,
+ *  in lookups per microsecond.
+ *  @author Arthur Utnehmer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermutationBench {
+
+    /** Number of characters in the alphabet. */
+    @Param({ "26", "64", "256" })
+    public int alphabetSize;
+
+    /** Build the permutation and its inputs. */
+    @Setup
+    public void setUp() {
+        String chars = BenchSupport.alphabet(alphabetSize);
+        _perm = new Permutation(
+            BenchSupport.cycles(chars, new Random(BenchSupport.SEED), false),
+            new Alphabet(chars));
+        _inputs = BenchSupport.indices(alphabetSize, BATCH,
+                                       BenchSupport.SEED);
+    }
+
+    /** Permute a batch of indices. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int permute() {
+        int sum = 0;
+        for (int c : _inputs) {
+            sum += _perm.permute(c);
+        }
+        return sum;
+    }
+
+    /** Invert a batch of indices. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int invert() {
+        int sum = 0;
+        for (int c : _inputs) {
+            sum += _perm.invert(c);
+        }
+        return sum;
+    }
+
+    /** Number of lookups per invocation. */
+    private static final int BATCH = 1024;
+
+    /** Permutation under test. */
+    private Permutation _perm;
+
+    /** Indices to look up. */
+    private int[] _inputs;
+
+}
@@ -0,0 +1,88 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Throughput of Rotor.convertForward and Rotor.convertBackward at the
+ *  rotor's own setting, which moves every BATCH conversions, in
+ *  conversions per microsecond.
+ *  @author Arthur Utnehmer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotorBench {
+
+    /** Number of characters in the alphabet. */
+    @Param({ "26", "64", "256" })
+    public int alphabetSize;
+
+    /** True to use compiled per-setting tables (--compiled). */
+    @Param({ "false", "true" })
+    public boolean compiled;
+
+    /** Build the rotor and its inputs. */
+    @Setup
+    public void setUp() {
+        String chars = BenchSupport.alphabet(alphabetSize);
+        Permutation perm = new Permutation(
+            BenchSupport.cycles(chars, new Random(BenchSupport.SEED), false),
+            new Alphabet(chars));
+        _rotor = new MovingRotor("R", perm, chars.substring(0, 1));
+        if (compiled) {
+            _rotor.compile(Machine.DEFAULT_COMPILED_SIZE);
+        }
+        _inputs = BenchSupport.indices(alphabetSize, BATCH,
+                                       BenchSupport.SEED);
+    }
+
+    /** Convert a batch of indices forward. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int convertForward() {
+        _rotor.advance();
+        int sum = 0;
+        for (int c : _inputs) {
+            sum += _rotor.convertForward(c);
+        }
+        return sum;
+    }
+
+    /** Convert a batch of indices backward. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int convertBackward() {
+        _rotor.advance();
+        int sum = 0;
+        for (int c : _inputs) {
+            sum += _rotor.convertBackward(c);
+        }
+        return sum;
+    }
+
+    /** Number of conversions per invocation. */
+    private static final int BATCH = 1024;
+
+    /** Rotor under test. */
+    private Rotor _rotor;
+
+    /** Indices to convert. */
+    private int[] _inputs;
+
+}
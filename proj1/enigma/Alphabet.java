@@ -1,5 +1,8 @@
 package enigma;
 
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
 
 /** An alphabet of encodable characters.  Provides a mapping from characters
  *  to and from indices into the alphabet.
@@ -11,6 +14,61 @@ class Alphabet {
      *  K (numbering from 0). No character may be duplicated. */
     Alphabet(String chars) {
         _alphabet = chars.toCharArray();
+        if (_alphabet.length == 0) {
+            throw error("alphabet is empty");
+        }
+        char min = _alphabet[0], max = _alphabet[0];
+        for (char ch : _alphabet) {
+            min = (char) Math.min(min, ch);
+            max = (char) Math.max(max, ch);
+        }
+        _base = min;
+        if (max - min < Math.max(DENSE_LIMIT, 4 * _alphabet.length)) {
+            buildDenseIndex(max - min + 1);
+        } else {
+            buildHashedIndex();
+        }
+        _bytes = bytesInOrder();
+    }
+
+    /** Return the alphabet of the 256 byte values, in which character
+     *  K (K < 256) has index K, for converting binary data. */
+    static Alphabet bytes() {
+        char[] chars = new char[BYTE_VALUES];
+        for (int k = 0; k < chars.length; k++) {
+            chars[k] = (char) k;
+        }
+        return new Alphabet(new String(chars));
+    }
+
+    /** Return true iff I am the alphabet of byte values, in which each
+     *  byte B (taken as unsigned) is the character of index B. */
+    boolean isBytes() {
+        return _bytes;
+    }
+
+    /** Return true iff _alphabet is the byte values in order. */
+    private boolean bytesInOrder() {
+        if (_alphabet.length != BYTE_VALUES) {
+            return false;
+        }
+        for (int k = 0; k < BYTE_VALUES; k++) {
+            if (_alphabet[k] != k) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the byte value written as the two hexadecimal digits of
+     *  TEXT starting at K, or -1 if they are not two such digits. */
+    static int hexByte(CharSequence text, int k) {
+        if (k < 0 || k + 1 >= text.length()) {
+            return -1;
+        }
+        int high = Character.digit(text.charAt(k), 16);
+        int low = Character.digit(text.charAt(k + 1), 16);
+        return high < 0 || low < 0 ? -1 : high * 16 + low;
     }
 
     /** A default alphabet of all upper-case characters. */
@@ -18,6 +76,50 @@ class Alphabet {
         this("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
     }
 
+    /** Fill _dense, a table of SPAN entries indexed by character code
+     *  minus _base, with the index of each character (or -1). */
+    private void buildDenseIndex(int span) {
+        _dense = new int[span];
+        Arrays.fill(_dense, -1);
+        for (int x = 0; x < _alphabet.length; x++) {
+            int slot = _alphabet[x] - _base;
+            if (_dense[slot] >= 0) {
+                throw error("duplicate character %c in alphabet",
+                        _alphabet[x]);
+            }
+            _dense[slot] = x;
+        }
+    }
+
+    /** Fill the open-addressing table _keys/_values, used when the
+     *  characters span too wide a range of code points for a dense
+     *  table.  Its capacity is a power of two at least twice size(). */
+    private void buildHashedIndex() {
+        int capacity = Integer.highestOneBit(_alphabet.length * 2 - 1) << 1;
+        _mask = capacity - 1;
+        _shift = Integer.numberOfLeadingZeros(_mask);
+        _keys = new char[capacity];
+        _values = new int[capacity];
+        Arrays.fill(_values, -1);
+        for (int x = 0; x < _alphabet.length; x++) {
+            char ch = _alphabet[x];
+            int slot = hash(ch);
+            while (_values[slot] >= 0) {
+                if (_keys[slot] == ch) {
+                    throw error("duplicate character %c in alphabet", ch);
+                }
+                slot = (slot + 1) & _mask;
+            }
+            _keys[slot] = ch;
+            _values[slot] = x;
+        }
+    }
+
+    /** Return the home slot of CH in the hashed index. */
+    private int hash(char ch) {
+        return (ch * HASH_MULTIPLIER) >>> _shift;
+    }
+
     /** Returns the size of the alphabet. */
     int size() {
         return _alphabet.length;
@@ -30,12 +132,7 @@ class Alphabet {
 
     /** Returns true if CH is in this alphabet. */
     boolean contains(char ch) {
-        for (int x = 0; x < _alphabet.length; x++) {
-            if (ch == _alphabet[x]) {
-                return true;
-            }
-        }
-        return false;
+        return toInt(ch) >= 0;
     }
 
     /** Returns character number INDEX in the alphabet, where
@@ -45,16 +142,58 @@ class Alphabet {
     }
 
     /** Returns the index of character CH which must be in
-     *  the alphabet. This is the inverse of toChar(). */
+     *  the alphabet. This is the inverse of toChar(). Returns -1
+     *  if CH is not in the alphabet. */
     int toInt(char ch) {
-        for (int x = 0; x < _alphabet.length; x++) {
-            if (ch == _alphabet[x]) {
-                return x;
+        if (_dense != null) {
+            int slot = ch - _base;
+            if (slot < 0 || slot >= _dense.length) {
+                return -1;
+            }
+            return _dense[slot];
+        }
+        int slot = hash(ch);
+        while (_values[slot] >= 0) {
+            if (_keys[slot] == ch) {
+                return _values[slot];
             }
+            slot = (slot + 1) & _mask;
         }
         return -1;
     }
 
+    /** Number of byte values. */
+    static final int BYTE_VALUES = 256;
+
+    /** Widest code-point range always indexed with a dense table. */
+    private static final int DENSE_LIMIT = 256;
+
+    /** Multiplier (the 32-bit golden ratio) used to scatter characters in
+     *  the hashed index. */
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
     /** A char array containing the alphabet. */
     private char[] _alphabet;
+
+    /** True iff I am the alphabet of byte values (see isBytes). */
+    private final boolean _bytes;
+
+    /** Smallest character code in the alphabet. */
+    private final char _base;
+
+    /** Dense reverse index, or null if the hashed index is used. */
+    private int[] _dense;
+
+    /** Keys of the hashed reverse index. */
+    private char[] _keys;
+
+    /** Values of the hashed reverse index; -1 marks an empty slot. */
+    private int[] _values;
+
+    /** Capacity of the hashed index minus one. */
+    private int _mask;
+
+    /** Shift that keeps the top log2(capacity) bits of a scattered
+     *  character. */
+    private int _shift;
 }
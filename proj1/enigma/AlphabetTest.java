@@ -47,4 +47,25 @@ public class AlphabetTest {
 
     }
 
+    @Test
+    public void testWideAlphabet() {
+        StringBuilder chars = new StringBuilder();
+        for (int x = 0; x < 300; x++) {
+            chars.append((char) (0x3000 + x * 97));
+        }
+        Alphabet test = new Alphabet(chars.toString());
+        assertEquals(300, test.size());
+        for (int x = 0; x < 300; x++) {
+            assertEquals(x, test.toInt((char) (0x3000 + x * 97)));
+            assertTrue(test.contains(test.toChar(x)));
+        }
+        assertEquals(-1, test.toInt('A'));
+        assertFalse(test.contains((char) 0x3001));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testDuplicate() {
+        new Alphabet("ABCA");
+    }
+
 }
@@ -0,0 +1,184 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static enigma.EnigmaException.*;
+
+/** Converts many independent messages at once, all through the rotors
+ *  of one MachineSpec but each from its own starting positions and with
+ *  its own plugboard.  Converting one message is a chain of table
+ *  lookups, each depending on the last, so a single message keeps the
+ *  processor waiting on one load at a time.  A batch instead keeps its
+ *  messages in lanes, in structure-of-arrays form: the rotor settings of
+ *  all lanes form one int array per rotor, and the characters in flight
+ *  one more.  Each character position is converted for every lane
+ *  together, one rotor at a time, so each pass is a loop of independent
+ *  gathers from a single flattened rotor table, which the processor
+ *  overlaps (and which a compiler may turn into vector gathers).
+ *
+ *  Messages are taken longest first, in blocks of at most LANES lanes,
+ *  so that the lanes still active at any character position are always
+ *  a prefix of the block.  An encoder holds no per-batch state between
+ *  calls other than scratch arrays, and must be used by one thread at a
+ *  time.
+ *  @author Arthur Utnehmer
+ */
+final class BatchEncoder {
+
+    /** Largest number of messages converted together. */
+    static final int LANES = 256;
+
+    /** An encoder through the rotors of SPEC. */
+    BatchEncoder(MachineSpec spec) {
+        _spec = spec;
+        _size = spec.alphabet().size();
+        _numRotors = spec.numRotors();
+        _forward = new int[_numRotors][];
+        _backward = new int[_numRotors][];
+        for (int k = 0; k < _numRotors; k++) {
+            _forward[k] = flatten(spec.rotor(k), true);
+            if (k > 0) {
+                _backward[k] = flatten(spec.rotor(k), false);
+            }
+        }
+        _positions = new int[_numRotors][LANES];
+        _chars = new int[LANES];
+        _plugs = new int[LANES * _size];
+        _lanes = new char[LANES][];
+    }
+
+    /** Return the conversions of ROTOR at every setting in one array,
+     *  in which the entry at SETTING * size + P is the forward (if
+     *  FORWARD) or backward conversion of P at SETTING. */
+    private int[] flatten(Rotor rotor, boolean forward) {
+        int[] result = new int[_size * _size];
+        for (int s = 0; s < _size; s++) {
+            for (int p = 0; p < _size; p++) {
+                result[s * _size + p] = forward ? rotor.convertForward(p, s)
+                    : rotor.convertBackward(p, s);
+            }
+        }
+        return result;
+    }
+
+    /** Return my spec. */
+    MachineSpec spec() {
+        return _spec;
+    }
+
+    /** Convert each MESSAGES[i] in place, as a cursor over my spec at
+     *  rotor positions STARTS[i] (reflector first) would, but with
+     *  plugboard PLUGBOARDS[i], or my spec's plugboard if that is null.
+     *  PLUGBOARDS may itself be null, giving every message my spec's
+     *  plugboard.  Messages may differ in length. */
+    void convert(char[][] messages, int[][] starts,
+                 Permutation[] plugboards) {
+        int count = messages.length;
+        if (starts.length != count
+            || (plugboards != null && plugboards.length != count)) {
+            throw error("need one key per message");
+        }
+        for (int[] start : starts) {
+            if (start.length != _numRotors) {
+                throw error("wrong number of rotor positions");
+            }
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(
+                        (Integer i) -> messages[i].length).reversed());
+        for (int first = 0; first < count; first += LANES) {
+            int lanes = Math.min(LANES, count - first);
+            for (int l = 0; l < lanes; l++) {
+                int i = order[first + l];
+                _lanes[l] = messages[i];
+                for (int k = 0; k < _numRotors; k++) {
+                    _positions[k][l] = starts[i][k];
+                }
+                Permutation plugboard =
+                    plugboards == null || plugboards[i] == null
+                    ? _spec.plugboard() : plugboards[i];
+                if (plugboard.size() != _size) {
+                    throw error("plugboard is over a different alphabet");
+                }
+                System.arraycopy(plugboard.forwardTable(), 0, _plugs,
+                                 l * _size, _size);
+            }
+            try {
+                convertBlock(lanes);
+            } finally {
+                Arrays.fill(_lanes, null);
+            }
+        }
+    }
+
+    /** Convert the messages in the first LANES lanes, which are in order
+     *  of decreasing length. */
+    private void convertBlock(int lanes) {
+        Alphabet alphabet = _spec.alphabet();
+        SteppingModel model = _spec.stepping();
+        int size = _size;
+        int[] chars = _chars;
+        int[] plugs = _plugs;
+        int active = lanes;
+        for (int t = 0; active > 0; t++) {
+            while (active > 0 && _lanes[active - 1].length <= t) {
+                active -= 1;
+            }
+            if (active == 0) {
+                break;
+            }
+            model.step(_positions, active);
+            for (int l = 0; l < active; l++) {
+                chars[l] = plugs[l * size + _spec.index(_lanes[l][t])];
+            }
+            for (int k = _numRotors - 1; k >= 0; k--) {
+                int[] table = _forward[k];
+                int[] setting = _positions[k];
+                for (int l = 0; l < active; l++) {
+                    chars[l] = table[setting[l] * size + chars[l]];
+                }
+            }
+            for (int k = 1; k < _numRotors; k++) {
+                int[] table = _backward[k];
+                int[] setting = _positions[k];
+                for (int l = 0; l < active; l++) {
+                    chars[l] = table[setting[l] * size + chars[l]];
+                }
+            }
+            for (int l = 0; l < active; l++) {
+                _lanes[l][t] = alphabet.toChar(plugs[l * size + chars[l]]);
+            }
+        }
+    }
+
+    /** The spec whose rotors I convert through. */
+    private final MachineSpec _spec;
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** Number of rotors, counting the reflector. */
+    private final int _numRotors;
+
+    /** _forward[k] and _backward[k] are the conversions of rotor #K at
+     *  every setting, as from flatten.  The reflector has no backward
+     *  table. */
+    private final int[][] _forward, _backward;
+
+    /** _positions[k][l] is the setting of rotor #K in lane L. */
+    private final int[][] _positions;
+
+    /** The character of each lane in flight, as an index. */
+    private final int[] _chars;
+
+    /** The plugboard of lane L, as a forward table, at L * size. */
+    private final int[] _plugs;
+
+    /** The message in each lane of the current block. */
+    private final char[][] _lanes;
+
+}
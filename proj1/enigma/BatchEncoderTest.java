@@ -0,0 +1,97 @@
+package enigma;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the BatchEncoder class.
+ *  @author Arthur Utnehmer
+ */
+public class BatchEncoderTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    private static final Alphabet AZ = new Alphabet(TestUtils.UPPER_STRING);
+
+    private static final String[] ROTORS = { "B", "Beta", "III", "IV", "I" };
+
+    private static Machine machine() {
+        Machine mach = TestUtils.navalMachine(AZ);
+        mach.insertRotors(ROTORS);
+        mach.setRotors("AAAA");
+        mach.setPlugboard(new Permutation("", AZ));
+        return mach;
+    }
+
+    private static String randomString(Random random, int len) {
+        char[] result = new char[len];
+        for (int k = 0; k < len; k++) {
+            result[k] = AZ.toChar(random.nextInt(AZ.size()));
+        }
+        return new String(result);
+    }
+
+    @Test
+    public void matchesMachine() {
+        Random random = new Random(61);
+        int count = BatchEncoder.LANES + 44;
+        String[] plain = new String[count];
+        String[] settings = new String[count];
+        String[] plugs = new String[count];
+        char[][] messages = new char[count][];
+        int[][] starts = new int[count][];
+        Permutation[] plugboards = new Permutation[count];
+        for (int i = 0; i < count; i++) {
+            plain[i] = randomString(random, random.nextInt(700));
+            settings[i] = randomString(random, 4);
+            String pairs = randomString(random, 2);
+            plugs[i] = pairs.charAt(0) == pairs.charAt(1) ? ""
+                : "(" + pairs + ")";
+            messages[i] = plain[i].toCharArray();
+            Machine mach = machine();
+            mach.setRotors(settings[i]);
+            starts[i] = mach.positions();
+            plugboards[i] = i % 7 == 0 ? null : new Permutation(plugs[i], AZ);
+        }
+        BatchEncoder batch = new BatchEncoder(machine().spec());
+        batch.convert(messages, starts, plugboards);
+        for (int i = 0; i < count; i++) {
+            Machine mach = machine();
+            mach.setRotors(settings[i]);
+            if (plugboards[i] != null) {
+                mach.setPlugboard(plugboards[i]);
+            }
+            assertEquals("message " + i, mach.convert(plain[i]),
+                         new String(messages[i]));
+        }
+    }
+
+    @Test
+    public void usesSpecPlugboard() {
+        Machine mach = machine();
+        mach.setPlugboard(new Permutation("(AQ) (EP)", AZ));
+        MachineSpec spec = mach.spec();
+        char[][] messages = { "HELLOWORLD".toCharArray(), new char[0] };
+        int[][] starts = { spec.startPositions(), spec.startPositions() };
+        new BatchEncoder(spec).convert(messages, starts, null);
+        assertEquals(spec.start().convert("HELLOWORLD"),
+                     new String(messages[0]));
+        assertEquals(0, messages[1].length);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void rejectsMissingKeys() {
+        MachineSpec spec = machine().spec();
+        new BatchEncoder(spec).convert(new char[2][0],
+                                       new int[][] { spec.startPositions() },
+                                       null);
+    }
+
+}
@@ -0,0 +1,53 @@
+package enigma;
+
+import java.io.IOException;
+
+import static enigma.EnigmaException.*;
+
+/** A tracer that collects conversions in memory and writes them to an
+ *  Appendable in large blocks, either when its buffer fills or when
+ *  flushed.
+ *  @author Arthur Utnehmer
+ */
+class BufferedTracer extends LineTracer {
+
+    /** A tracer writing to OUT whenever more than CAPACITY characters
+     *  are buffered. */
+    BufferedTracer(Appendable out, int capacity) {
+        _out = out;
+        _capacity = capacity;
+        _buffer = new StringBuilder(capacity + LINE_ALLOWANCE);
+    }
+
+    @Override
+    void emit(CharSequence line) {
+        _buffer.append(line).append(System.lineSeparator());
+        if (_buffer.length() > _capacity) {
+            flush();
+        }
+    }
+
+    /** Write out everything buffered so far. */
+    void flush() {
+        try {
+            _out.append(_buffer);
+        } catch (IOException excp) {
+            throw error("could not write trace: %s",
+                    excp.getMessage());
+        }
+        _buffer.setLength(0);
+    }
+
+    /** Extra room allowed for the line that overflows the buffer. */
+    private static final int LINE_ALLOWANCE = 128;
+
+    /** Destination of the trace. */
+    private final Appendable _out;
+
+    /** Number of buffered characters that triggers a flush. */
+    private final int _capacity;
+
+    /** Lines not yet written. */
+    private final StringBuilder _buffer;
+
+}
@@ -0,0 +1,224 @@
+package enigma;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+import static enigma.EnigmaException.*;
+
+/** Compiled configuration images.  An image holds everything readConfig
+ *  extracts from a configuration file (alphabet, slot and pawl counts,
+ *  and each available rotor's kind, name, notches, and compiled forward
+ *  table) in a binary form that is memory-mapped and read back without
+ *  any parsing.  Each image records the length and CRC-32 of the
+ *  configuration text it was compiled from, and is used only if they
+ *  still match, so a stale image is simply recompiled.  The image ends
+ *  with a CRC-32 of its own contents, so a truncated or damaged image is
+ *  treated as missing rather than trusted.
+ *
+ *  Layout (all values big-endian; a string is an int length followed by
+ *  that many UTF-16 chars):
+ *  <pre>
+ *    int MAGIC, int VERSION, int source length, long source CRC-32,
+ *    string alphabet, int slots, int pawls, int number of rotors,
+ *    per rotor: byte kind ('M', 'N', or 'R'), string name,
+ *               string notches, string cycles, int[alphabet size] table,
+ *    long CRC-32 of all preceding bytes
+ *  </pre>
+ *  @author Arthur Utnehmer
+ */
+final class ConfigImage {
+
+    /** Not instantiable. */
+    private ConfigImage() {
+    }
+
+    /** Return the machine stored in the image file IMAGE, provided that
+     *  it was compiled from configuration text whose bytes are SOURCE.
+     *  Returns null if IMAGE does not exist, is damaged, or was compiled
+     *  from some other text. */
+    static Machine load(Path image, byte[] source) {
+        try (FileChannel channel =
+                 FileChannel.open(image, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + Long.BYTES || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buf =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return read(buf, source);
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** Return the machine in BUF if it is an intact image compiled from
+     *  SOURCE, and otherwise null. */
+    private static Machine read(ByteBuffer buf, byte[] source) {
+        int end = buf.limit() - Long.BYTES;
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buf.duplicate();
+        body.limit(end);
+        crc.update(body);
+        if (crc.getValue() != buf.getLong(end)) {
+            return null;
+        }
+        buf.limit(end);
+        try {
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION
+                || buf.getInt() != source.length
+                || buf.getLong() != checksum(source)) {
+                return null;
+            }
+            Alphabet alphabet = new Alphabet(readString(buf));
+            int slots = buf.getInt();
+            int pawls = buf.getInt();
+            int count = buf.getInt();
+            ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+            for (int k = 0; k < count; k++) {
+                rotors.add(readRotor(buf, alphabet));
+            }
+            if (buf.hasRemaining()) {
+                return null;
+            }
+            return new Machine(alphabet, slots, pawls, rotors);
+        } catch (BufferUnderflowException | EnigmaException excp) {
+            return null;
+        }
+    }
+
+    /** Return the next rotor in BUF, whose permutation is over
+     *  ALPHABET. */
+    private static Rotor readRotor(ByteBuffer buf, Alphabet alphabet) {
+        byte kind = buf.get();
+        String name = readString(buf);
+        String notches = readString(buf);
+        String cycles = readString(buf);
+        int[] table = new int[alphabet.size()];
+        buf.asIntBuffer().get(table);
+        buf.position(buf.position() + table.length * Integer.BYTES);
+        Permutation perm = new Permutation(table, cycles, alphabet);
+        switch (kind) {
+        case 'M':
+            return new MovingRotor(name, perm, notches);
+        case 'N':
+            return new FixedRotor(name, perm);
+        case 'R':
+            return new Reflector(name, perm);
+        default:
+            throw error("bad rotor kind in image");
+        }
+    }
+
+    /** Return the next string in BUF. */
+    private static String readString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0 || len > buf.remaining() / Character.BYTES) {
+            throw new BufferUnderflowException();
+        }
+        char[] chars = new char[len];
+        buf.asCharBuffer().get(chars);
+        buf.position(buf.position() + len * Character.BYTES);
+        return new String(chars);
+    }
+
+    /** Write an image of MACHINE, as just configured from the text whose
+     *  bytes are SOURCE, to the file IMAGE.  The image is written to a
+     *  temporary file that then replaces IMAGE in one step, so that
+     *  concurrent readers never see a partial image.  As the image is
+     *  only a cache, failure to write it is not an error and leaves any
+     *  previous IMAGE in place. */
+    static void save(Path image, byte[] source, Machine machine) {
+        Path dir = image.toAbsolutePath().getParent();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(dir, image.getFileName().toString(),
+                                        ".tmp");
+            Files.write(temp, encode(source, machine));
+            try {
+                Files.move(temp, image, StandardCopyOption.ATOMIC_MOVE,
+                           StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException excp) {
+                Files.move(temp, image, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+        } catch (IOException excp) {
+            return;
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    /** Return the contents of an image of MACHINE compiled from the text
+     *  whose bytes are SOURCE. */
+    static byte[] encode(byte[] source, Machine machine) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(source.length);
+            out.writeLong(checksum(source));
+            writeString(out, new String(machine.alphabet().getAlphabet()));
+            out.writeInt(machine.numRotors());
+            out.writeInt(machine.numPawls());
+            out.writeInt(machine.getRotorList().size());
+            for (Rotor rotor : machine.getRotorList()) {
+                out.writeByte(rotor instanceof Reflector ? 'R'
+                              : rotor.rotates() ? 'M' : 'N');
+                writeString(out, rotor.name());
+                writeString(out, rotor.notches());
+                String cycles = rotor.permutation().getCycles();
+                writeString(out, cycles == null ? "" : cycles);
+                for (int p : rotor.permutation().forwardTable()) {
+                    out.writeInt(p);
+                }
+            }
+            out.flush();
+        } catch (IOException excp) {
+            throw error("could not encode configuration image");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        ByteBuffer result = ByteBuffer.allocate(bytes.size() + Long.BYTES);
+        result.put(bytes.toByteArray()).putLong(crc.getValue());
+        return result.array();
+    }
+
+    /** Write S to OUT as an int length followed by its chars. */
+    private static void writeString(DataOutputStream out, String s)
+        throws IOException {
+        out.writeInt(s.length());
+        out.writeChars(s);
+    }
+
+    /** Return the CRC-32 of SOURCE. */
+    static long checksum(byte[] source) {
+        CRC32 crc = new CRC32();
+        crc.update(source);
+        return crc.getValue();
+    }
+
+    /** First int of every image ("ENIG"). */
+    private static final int MAGIC = 0x454E4947;
+
+    /** Version of the image layout. */
+    private static final int VERSION = 1;
+
+    /** Bytes in the fixed part of the header. */
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + Long.BYTES;
+
+}
@@ -0,0 +1,86 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the ConfigImage class.
+ *  @author Arthur Utnehmer
+ */
+public class ConfigImageTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    private static final Alphabet AZ = new Alphabet(TestUtils.UPPER_STRING);
+
+    private static final byte[] SOURCE =
+        "stands in for the configuration text".getBytes(
+            StandardCharsets.US_ASCII);
+
+    private Machine machine() {
+        return TestUtils.navalMachine(AZ);
+    }
+
+    private String encode(Machine mach) {
+        mach.insertRotors(new String[] { "B", "Beta", "III", "IV", "I" });
+        mach.setRotors("AXLE");
+        mach.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", AZ));
+        return mach.convert("FROMHISSHOULDERHIAWATHATOOKTHECAMERA");
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Path dir = Files.createTempDirectory("image");
+        Path image = dir.resolve("default.img");
+        try {
+            assertNull(ConfigImage.load(image, SOURCE));
+            Machine original = machine();
+            ConfigImage.save(image, SOURCE, original);
+            Machine loaded = ConfigImage.load(image, SOURCE);
+            assertNotNull(loaded);
+            assertEquals(5, loaded.numRotors());
+            assertEquals(3, loaded.numPawls());
+            assertEquals(5, loaded.getRotorList().size());
+            assertTrue(loaded.getRotorList().get(0) instanceof Reflector);
+            assertEquals("Q", loaded.getRotorList().get(4).notches());
+            assertEquals(TestUtils.NAVALA.get("I"),
+                         loaded.getRotorList().get(4).permutation()
+                         .getCycles());
+            assertEquals(encode(machine()), encode(loaded));
+        } finally {
+            Files.deleteIfExists(image);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void rejectsStaleOrDamagedImage() throws IOException {
+        Path dir = Files.createTempDirectory("image");
+        Path image = dir.resolve("default.img");
+        try {
+            ConfigImage.save(image, SOURCE, machine());
+            byte[] edited = SOURCE.clone();
+            edited[0] = 'S';
+            assertNull(ConfigImage.load(image, edited));
+            byte[] contents = Files.readAllBytes(image);
+            contents[contents.length / 2] ^= 1;
+            Files.write(image, contents);
+            assertNull(ConfigImage.load(image, SOURCE));
+            Files.write(image, new byte[] { 1, 2, 3 });
+            assertNull(ConfigImage.load(image, SOURCE));
+        } finally {
+            Files.deleteIfExists(image);
+            Files.delete(dir);
+        }
+    }
+}
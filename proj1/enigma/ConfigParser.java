@@ -0,0 +1,330 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static enigma.EnigmaException.*;
+
+/** Reads a machine configuration in a single pass, building each rotor's
+ *  permutation table as its cycles are scanned.  A configuration is a
+ *  line giving the alphabet, the numbers of rotor slots and pawls, and
+ *  then any number of rotor descriptions, each a name, a type (M
+ *  followed by the notches, N, or R), and cycles that may continue over
+ *  any number of lines.  Work and memory are linear in the size of the
+ *  configuration, and every error message gives the line and column at
+ *  which the problem was found.
+ *
+ *  An alphabet line of BYTE_ALPHABET selects byte mode: the alphabet is
+ *  then the 256 byte values (see Alphabet.bytes), and each symbol in
+ *  notches and cycles is written as two hexadecimal digits, as in
+ *  "M0aff" or "(00ff1b)".
+ *  @author Arthur Utnehmer
+ */
+class ConfigParser {
+
+    /** A parser reading a configuration from IN in blocks of BLOCKSIZE
+     *  characters. */
+    ConfigParser(Reader in, int blockSize) {
+        _in = in;
+        _block = new char[blockSize];
+        _line = 1;
+    }
+
+    /** Return a machine configured as my input describes, with no rotors
+     *  inserted. */
+    Machine parse() {
+        try {
+            read();
+            readAlphabet();
+            int slots = readInt("number of rotor slots");
+            int pawls = readInt("number of pawls");
+            if (slots <= 1 || pawls < 0 || pawls >= slots) {
+                throw errorAt(_tokenLine, _tokenColumn,
+                              "bad numbers of slots (%d) and pawls (%d)",
+                              slots, pawls);
+            }
+            ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+            HashSet<String> names = new HashSet<String>();
+            while (_kind != END) {
+                int line = _tokenLine, column = _tokenColumn;
+                Rotor rotor = readRotor();
+                if (!names.add(rotor.name())) {
+                    throw errorAt(line, column, "duplicate rotor %s",
+                                  rotor.name());
+                }
+                rotors.add(rotor);
+            }
+            return new Machine(_alphabet, slots, pawls, rotors);
+        } catch (IOException excp) {
+            throw error("could not read configuration: %s",
+                        excp.getMessage());
+        }
+    }
+
+    /** Read the first line, which is the alphabet, and the token after
+     *  it. */
+    private void readAlphabet() throws IOException {
+        StringBuilder chars = new StringBuilder();
+        while (_ch >= 0 && !MessageReader.isLineTerminator((char) _ch)) {
+            chars.append((char) _ch);
+            read();
+        }
+        String alphabet = chars.toString().trim();
+        if (alphabet.isEmpty()) {
+            throw errorAt(1, 1, "missing alphabet");
+        }
+        if (alphabet.equals(BYTE_ALPHABET)) {
+            _alphabet = Alphabet.bytes();
+            _width = 2;
+            next();
+            return;
+        }
+        try {
+            _alphabet = new Alphabet(alphabet);
+        } catch (EnigmaException excp) {
+            throw errorAt(1, 1, "%s", excp.getMessage());
+        }
+        _width = 1;
+        next();
+    }
+
+    /** Return the current token, which must be an integer describing
+     *  WHAT, and move past it. */
+    private int readInt(String what) throws IOException {
+        if (_kind != WORD) {
+            throw errorAt(_tokenLine, _tokenColumn, "expected %s", what);
+        }
+        try {
+            int result = Integer.parseInt(_token.toString());
+            next();
+            return result;
+        } catch (NumberFormatException excp) {
+            throw errorAt(_tokenLine, _tokenColumn, "expected %s, not %s",
+                          what, _token);
+        }
+    }
+
+    /** Return the rotor described starting at the current token, and move
+     *  past its description. */
+    private Rotor readRotor() throws IOException {
+        if (_kind != WORD) {
+            throw errorAt(_tokenLine, _tokenColumn, "expected rotor name");
+        }
+        String name = _token.toString();
+        next();
+        if (_kind != WORD) {
+            throw errorAt(_tokenLine, _tokenColumn,
+                          "expected type of rotor %s", name);
+        }
+        char type = _token.charAt(0);
+        String notches = _token.substring(1);
+        if ((type != 'M' && !notches.isEmpty())
+            || (type != 'M' && type != 'N' && type != 'R')) {
+            throw errorAt(_tokenLine, _tokenColumn,
+                          "bad type %s for rotor %s", _token, name);
+        }
+        StringBuilder notchChars = new StringBuilder();
+        for (int k = 0; k < notches.length(); k += _width) {
+            int c = symbol(notches, k);
+            if (c < 0) {
+                throw errorAt(_tokenLine, _tokenColumn + 1 + k,
+                              "notch %s is not in the alphabet",
+                              notches.substring(k, Math.min(k + _width,
+                                                            notches.length())));
+            }
+            notchChars.append(_alphabet.toChar(c));
+        }
+        notches = notchChars.toString();
+        next();
+        int size = _alphabet.size();
+        int[] table = new int[size];
+        for (int x = 0; x < size; x++) {
+            table[x] = x;
+        }
+        boolean[] seen = new boolean[size];
+        StringBuilder cycles = new StringBuilder();
+        while (_kind == CYCLE) {
+            addCycle(table, seen);
+            if (cycles.length() > 0) {
+                cycles.append(' ');
+            }
+            cycles.append(_token);
+            next();
+        }
+        Permutation perm =
+            new Permutation(table, cycles.toString(), _alphabet);
+        switch (type) {
+        case 'M':
+            return new MovingRotor(name, perm, notches);
+        case 'N':
+            return new FixedRotor(name, perm);
+        default:
+            return new Reflector(name, perm);
+        }
+    }
+
+    /** Add the current token, a cycle "(c0c1...cm)", to TABLE, where
+     *  SEEN marks the characters already in a cycle. */
+    private void addCycle(int[] table, boolean[] seen) {
+        int end = _token.length() - 1;
+        int first = -1, prev = -1;
+        for (int k = 1; k < end; k += _width) {
+            String sym = _token.substring(k, Math.min(k + _width, end));
+            int c = symbol(_token.subSequence(0, end), k);
+            if (c < 0) {
+                throw errorAt(_tokenLine, _tokenColumn + k,
+                              "character %s is not in the alphabet", sym);
+            }
+            if (seen[c]) {
+                throw errorAt(_tokenLine, _tokenColumn + k,
+                              "character %s appears in more than one "
+                              + "cycle position", sym);
+            }
+            seen[c] = true;
+            if (prev < 0) {
+                first = c;
+            } else {
+                table[prev] = c;
+            }
+            prev = c;
+        }
+        if (prev >= 0) {
+            table[prev] = first;
+        }
+    }
+
+    /** Return the index of the symbol of TEXT starting at K, or -1 if it
+     *  is not in the alphabet.  A symbol is one character, or in byte
+     *  mode the two hexadecimal digits of a byte value. */
+    private int symbol(CharSequence text, int k) {
+        if (_width == 1) {
+            return _alphabet.toInt(text.charAt(k));
+        }
+        return Alphabet.hexByte(text, k);
+    }
+
+    /** Scan the next token into _token, setting _kind, _tokenLine, and
+     *  _tokenColumn. */
+    private void next() throws IOException {
+        while (_ch >= 0 && Character.isWhitespace(_ch)) {
+            read();
+        }
+        _token.setLength(0);
+        _tokenLine = _line;
+        _tokenColumn = _column;
+        if (_ch < 0) {
+            _kind = END;
+        } else if (_ch == ')') {
+            throw errorAt(_line, _column, "')' without matching '('");
+        } else if (_ch == '(') {
+            _kind = CYCLE;
+            _token.append('(');
+            read();
+            while (_ch != ')') {
+                if (_ch < 0 || _ch == '(' || Character.isWhitespace(_ch)) {
+                    throw errorAt(_tokenLine, _tokenColumn,
+                                  "unterminated cycle");
+                }
+                _token.append((char) _ch);
+                read();
+            }
+            _token.append(')');
+            read();
+        } else {
+            _kind = WORD;
+            while (_ch >= 0 && _ch != '(' && _ch != ')'
+                   && !Character.isWhitespace(_ch)) {
+                _token.append((char) _ch);
+                read();
+            }
+        }
+    }
+
+    /** Move to the next input character, setting _ch to it (or to -1 at
+     *  the end of input) and updating _line and _column.  A CR LF pair
+     *  ends a single line. */
+    private void read() throws IOException {
+        if (_ch >= 0 && MessageReader.isLineTerminator((char) _ch)) {
+            if (_ch != '\r' || peek() != '\n') {
+                _line += 1;
+                _column = 0;
+            }
+        }
+        if (_pos == _limit) {
+            _limit = _in.read(_block);
+            _pos = 0;
+            if (_limit < 0) {
+                _limit = 0;
+                _ch = -1;
+                return;
+            }
+        }
+        _ch = _block[_pos];
+        _pos += 1;
+        _column += 1;
+    }
+
+    /** Return the character after _ch without consuming it, or -1 at the
+     *  end of input. */
+    private int peek() throws IOException {
+        if (_pos == _limit) {
+            int n = _in.read(_block);
+            if (n < 0) {
+                return -1;
+            }
+            _pos = 0;
+            _limit = n;
+        }
+        return _block[_pos];
+    }
+
+    /** Return an error whose message is formed from FORMAT and ARGS as
+     *  for String.format, prefixed by LINE and COLUMN. */
+    private static EnigmaException errorAt(int line, int column,
+                                           String format, Object... args) {
+        return error("configuration line %d, column %d: %s", line, column,
+                     String.format(format, args));
+    }
+
+    /** Alphabet line selecting byte mode.  It repeats characters, so it
+     *  cannot be an ordinary alphabet. */
+    static final String BYTE_ALPHABET = "00-FF";
+
+    /** Token kinds: end of input, a word, a parenthesized cycle. */
+    private static final int END = 0, WORD = 1, CYCLE = 2;
+
+    /** Source of input. */
+    private final Reader _in;
+
+    /** Block of input being scanned. */
+    private final char[] _block;
+
+    /** Positions of the next unread character and end of valid data in
+     *  _block. */
+    private int _pos, _limit;
+
+    /** Current character, or -1 at the end of input. */
+    private int _ch;
+
+    /** Line and column of _ch, numbering from 1. */
+    private int _line, _column;
+
+    /** Text of the current token. */
+    private final StringBuilder _token = new StringBuilder();
+
+    /** Kind of the current token. */
+    private int _kind;
+
+    /** Line and column of the first character of the current token. */
+    private int _tokenLine, _tokenColumn;
+
+    /** Alphabet read from the first line. */
+    private Alphabet _alphabet;
+
+    /** Number of characters in each symbol of notches and cycles: 1, or
+     *  2 in byte mode. */
+    private int _width;
+
+}
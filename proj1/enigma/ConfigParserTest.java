@@ -0,0 +1,179 @@
+package enigma;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the ConfigParser class.
+ *  @author Arthur Utnehmer
+ */
+public class ConfigParserTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    private static final String CONFIG =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ\r\n"
+        + " 5 3\n"
+        + " I MQ      (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)\n"
+        + " III MV    (ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)\n"
+        + " IV MJ     (AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)\n"
+        + " V MZ      (AVOLDRWFIUQ)(BZKSMNHYC) (EGTJPX)\n"
+        + " Beta N    (ALBEVFCYODJWUGNMQTZSKPR) (HIX)\n"
+        + " B R       (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)\n"
+        + "           (RX) (SZ) (TV)\n";
+
+    private static Machine parse(String config, int blockSize) {
+        return new ConfigParser(new StringReader(config), blockSize).parse();
+    }
+
+    /** Return the message of the error from parsing CONFIG. */
+    private static String failure(String config) {
+        try {
+            parse(config, 64);
+        } catch (EnigmaException excp) {
+            return excp.getMessage();
+        }
+        fail("no error for " + config);
+        return null;
+    }
+
+    @Test
+    public void parsesRotors() {
+        for (int blockSize : new int[] { 1, 7, 4096 }) {
+            Machine mach = parse(CONFIG, blockSize);
+            assertEquals(5, mach.numRotors());
+            assertEquals(3, mach.numPawls());
+            assertEquals(6, mach.getRotorList().size());
+            Rotor b = mach.getRotorList().get(5);
+            assertEquals("B", b.name());
+            assertTrue(b instanceof Reflector);
+            assertEquals(TestUtils.NAVALA.get("B").replaceAll(" +", " "),
+                         b.permutation().getCycles());
+            Rotor five = mach.getRotorList().get(3);
+            assertTrue(five.rotates());
+            assertEquals("Z", five.notches());
+            for (int c = 0; c < 26; c++) {
+                assertEquals(TestUtils.NAVALA_MAP.get("V").charAt(c),
+                             five.permutation().permute((char) ('A' + c)));
+            }
+            assertFalse(mach.getRotorList().get(4).rotates());
+            mach.insertRotors(new String[] { "B", "Beta", "III", "IV", "I" });
+            mach.setRotors("AXLE");
+            mach.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                              mach.alphabet()));
+            assertEquals("QVPQSOKOILPUBKJZPISFXDW",
+                         mach.convert("FROMHISSHOULDERHIAWATHA"));
+        }
+    }
+
+    /** Return a byte configuration with 4 slots and 2 pawls. */
+    static String byteConfig() {
+        StringBuilder config = new StringBuilder(ConfigParser.BYTE_ALPHABET);
+        config.append("\n 4 2\n");
+        int[] steps = { 7, 45, 201 };
+        String[] names = { "I M00", "II M80ff", "Beta N" };
+        for (int r = 0; r < steps.length; r++) {
+            config.append(' ').append(names[r]).append(" (");
+            for (int j = 0; j < 256; j++) {
+                config.append(String.format("%02x", (steps[r] * j + r) % 256));
+            }
+            config.append(")\n");
+        }
+        config.append(" B R");
+        for (int j = 0; j < 256; j += 2) {
+            config.append(String.format(" (%02X%02X)", j, 255 - j));
+        }
+        return config.append('\n').toString();
+    }
+
+    @Test
+    public void parsesByteConfig() {
+        Machine mach = parse(byteConfig(), 100);
+        assertTrue(mach.alphabet().isBytes());
+        assertEquals(4, mach.getRotorList().size());
+        assertEquals("\u0080\u00ff", mach.getRotorList().get(1).notches());
+        Permutation reflector = mach.getRotorList().get(3).permutation();
+        assertEquals(255, reflector.permute(0));
+        assertTrue(reflector.derangement() && reflector.involution());
+        assertEquals(7, mach.getRotorList().get(0).permutation().permute(0));
+
+        byte[] data = new byte[3000];
+        for (int x = 0; x < data.length; x++) {
+            data[x] = (byte) (x * 31 + x / 256);
+        }
+        byte[] cipher = new byte[data.length];
+        mach.insertRotors(new String[] { "B", "Beta", "II", "I" });
+        mach.setPlugboard(plugboard(mach.alphabet()));
+        mach.setRotors("\u00fe\u0010\u00ff");
+        mach.convert(data, 0, data.length, cipher, 0);
+        assertFalse(Arrays.equals(data, cipher));
+        byte[] plain = new byte[data.length];
+        mach.setRotors("\u00fe\u0010\u00ff");
+        mach.convert(cipher, 0, cipher.length, plain, 0);
+        assertArrayEquals(data, plain);
+        mach.setRotors("\u00fe\u0010\u00ff");
+        assertEquals(new String(cipher, 0, 100, ISO_8859_1),
+                     mach.convert(new String(data, 0, 100, ISO_8859_1)));
+    }
+
+    /** Return a plugboard over ALPHABET swapping bytes 0 and 1. */
+    static Permutation plugboard(Alphabet alphabet) {
+        int[] table = new int[alphabet.size()];
+        for (int x = 0; x < table.length; x++) {
+            table[x] = x;
+        }
+        table[0] = 1;
+        table[1] = 0;
+        return new Permutation(table, "(0001)", alphabet);
+    }
+
+    @Test
+    public void reportsBytePositions() {
+        String header = ConfigParser.BYTE_ALPHABET + "\n2 1\n";
+        assertEquals("configuration line 3, column 9: "
+                     + "character g0 is not in the alphabet",
+                     failure(header + " A N (00g0)\n"));
+        assertEquals("configuration line 3, column 9: "
+                     + "character 0 is not in the alphabet",
+                     failure(header + " A N (000)\n"));
+        assertEquals("configuration line 3, column 9: "
+                     + "character 00 appears in more than one cycle position",
+                     failure(header + " A N (0000)\n"));
+        assertEquals("configuration line 3, column 7: "
+                     + "notch 1 is not in the alphabet",
+                     failure(header + " A M001 (0001)\n"));
+    }
+
+    @Test
+    public void reportsPositions() {
+        assertEquals("configuration line 3, column 8: "
+                     + "character 1 is not in the alphabet",
+                     failure("ABC\n2 1\n A N (A1)\n"));
+        assertEquals("configuration line 5, column 6: "
+                     + "character A appears in more than one cycle position",
+                     failure("ABC\n2 1\n A R (AB)\n B N (CA)\n    (A)\n"));
+        assertEquals("configuration line 2, column 3: "
+                     + "expected number of pawls, not x",
+                     failure("ABC\n2 x\n"));
+        assertEquals("configuration line 3, column 5: "
+                     + "notch X is not in the alphabet",
+                     failure("ABC\n2 1\n A MX (AB)\n"));
+        assertEquals("configuration line 3, column 3: "
+                     + "bad type Q for rotor A",
+                     failure("ABC\n2 1\nA Q (AB)\n"));
+        assertEquals("configuration line 4, column 2: duplicate rotor A",
+                     failure("ABC\n2 1\nA R (AB)\n A N\n"));
+        assertEquals("configuration line 3, column 5: unterminated cycle",
+                     failure("ABC\n2 1\nA R (AB\n"));
+    }
+}
@@ -0,0 +1,554 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+import ucb.util.CommandArgs;
+
+import static enigma.EnigmaException.*;
+
+/** A known-plaintext ("crib") key search in the manner of the Bombe.
+ *  Given a ciphertext and a crib, a piece of plaintext believed to
+ *  encode to the ciphertext starting at a known offset, the search
+ *  tries every order of the available rotors and every starting
+ *  position, looking for settings under which some plugboard could
+ *  produce the crib.
+ *
+ *  Without its plugboard, a machine at a given position is an
+ *  involution S (the "scrambler").  If crib letter A encodes to cipher
+ *  letter B there, and P is the plugboard, then S(P(A)) = P(B).  The
+ *  pairs (A, B) form a graph, the "menu".  For each position, the search
+ *  guesses P at the best-connected menu letter and follows the menu,
+ *  deducing P elsewhere, until P would have to map one letter to two,
+ *  or two letters to one.  As every deduction is reversible, a failed
+ *  guess also refutes any other guess it deduced along the way, which is
+ *  then not tried.  Guesses that survive are reported as stops, with
+ *  the plugboard pairs they deduced.
+ *
+ *  Scramblers are computed from the tables of a Scrambler, built once
+ *  per rotor order.  The mapping through everything but the fast rotor
+ *  is kept as one table per crib position and rebuilt only when a
+ *  slower rotor's position there changes, so most scrambler values take
+ *  three lookups.  The search of each rotor order and leftmost
+ *  rotor position is a separate task, run on a fixed pool of threads.
+ *  Every task tests all its starting positions and keeps its own best
+ *  stops, which are merged when all tasks are done, so the stops
+ *  reported do not depend on the order in which tasks run.
+ *  @author Arthur Utnehmer
+ */
+class CribSearch {
+
+    /** A setting under which the crib is consistent with the ciphertext
+     *  for some plugboard. */
+    static final class Stop {
+
+        /** A stop with rotors named ROTORS (reflector first) at POSITIONS
+         *  (excluding the reflector), deduced plugboard PLUGBOARD in cycle
+         *  notation, under which MATCHES characters of the crib encode
+         *  correctly using only the deduced pairs. */
+        Stop(String[] rotors, String positions, String plugboard,
+             int matches) {
+            _rotors = rotors;
+            _positions = positions;
+            _plugboard = plugboard;
+            _matches = matches;
+        }
+
+        /** Return the names of my rotors, reflector first. */
+        String[] rotors() {
+            return _rotors.clone();
+        }
+
+        /** Return my starting positions, as for Machine.setRotors. */
+        String positions() {
+            return _positions;
+        }
+
+        /** Return my deduced plugboard pairs in cycle notation. */
+        String plugboard() {
+            return _plugboard;
+        }
+
+        /** Return the number of crib characters my setting reproduces
+         *  with only the deduced plugboard pairs. */
+        int matches() {
+            return _matches;
+        }
+
+        /** Return my setting line, in the form Main accepts. */
+        String setting() {
+            return SearchSupport.setting(_rotors, _positions, _plugboard);
+        }
+
+        @Override
+        public String toString() {
+            return setting();
+        }
+
+        /** Rotor names, reflector first. */
+        private final String[] _rotors;
+
+        /** Starting positions. */
+        private final String _positions;
+
+        /** Deduced plugboard. */
+        private final String _plugboard;
+
+        /** Crib characters reproduced. */
+        private final int _matches;
+    }
+
+    /** A search over the available rotors of INVENTORY, with its numbers
+     *  of slots and pawls, using THREADS threads and reporting at most
+     *  LIMIT stops. */
+    CribSearch(Machine inventory, int threads, int limit) {
+        if (threads < 1) {
+            throw error("need at least one thread");
+        }
+        if (limit < 1) {
+            throw error("need to report at least one stop");
+        }
+        _inventory = new RotorInventory(inventory);
+        _alphabet = inventory.alphabet();
+        _size = _alphabet.size();
+        _threads = threads;
+        _limit = limit;
+    }
+
+    /** Return the offsets in CIPHERTEXT at which CRIB may start: those
+     *  at which no crib character would encode to itself, which no
+     *  machine with a deranging reflector can do. */
+    static List<Integer> offsets(String ciphertext, String crib) {
+        ArrayList<Integer> result = new ArrayList<Integer>();
+        for (int k = 0; k + crib.length() <= ciphertext.length(); k++) {
+            boolean ok = true;
+            for (int j = 0; ok && j < crib.length(); j++) {
+                ok = crib.charAt(j) != ciphertext.charAt(k + j);
+            }
+            if (ok) {
+                result.add(k);
+            }
+        }
+        return result;
+    }
+
+    /** Return the at most _limit stops with the most matches for CRIB
+     *  encoding to the characters of CIPHERTEXT starting at OFFSET, the
+     *  message having begun at the stop's positions.  Stops are ordered
+     *  by decreasing number of matches. */
+    List<Stop> search(String ciphertext, String crib, int offset) {
+        if (crib.isEmpty() || offset < 0
+            || offset + crib.length() > ciphertext.length()) {
+            throw error("crib does not fit the ciphertext at offset %d",
+                        offset);
+        }
+        int[] plain = indices(crib);
+        int[] cipher = indices(ciphertext.substring(offset,
+                                                    offset + crib.length()));
+        Menu menu = new Menu(plain, cipher, _size);
+        List<Rotor[]> orders = _inventory.orders();
+        ArrayList<Stop> stops = new ArrayList<Stop>();
+        if (orders.isEmpty()) {
+            return stops;
+        }
+        LongAdder tested = new LongAdder();
+        ExecutorService pool = SearchSupport.pool(_threads, "enigma-crib");
+        try {
+            ArrayList<Callable<List<Stop>>> tasks =
+                new ArrayList<Callable<List<Stop>>>();
+            for (Rotor[] order : orders) {
+                Scrambler shared = new Scrambler(order, _size);
+                for (int p = 0; p < _size; p++) {
+                    final int leftmost = p;
+                    tasks.add(() ->
+                        new Worker(shared, menu, plain, cipher, offset)
+                            .run(leftmost, tested));
+                }
+            }
+            for (List<Stop> found
+                     : SearchSupport.invokeAll(pool, tasks, "crib search")) {
+                stops.addAll(found);
+            }
+        } finally {
+            pool.shutdownNow();
+            _tested.add(tested.sum());
+        }
+        stops.sort(BY_MATCHES.reversed());
+        if (stops.size() > _limit) {
+            return new ArrayList<Stop>(stops.subList(0, _limit));
+        }
+        return stops;
+    }
+
+    /** Return the total number of rotor states tested by all completed
+     *  searches. */
+    long statesTested() {
+        return _tested.sum();
+    }
+
+    /** Return the indices of the characters of TEXT in my alphabet. */
+    private int[] indices(String text) {
+        int[] result = new int[text.length()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = _alphabet.toInt(text.charAt(k));
+            if (result[k] < 0) {
+                throw error("character %c is not in the alphabet",
+                            text.charAt(k));
+            }
+        }
+        return result;
+    }
+
+    /** The crib pairs as a graph on letters: an edge between crib letter
+     *  A and cipher letter B, labeled with crib index J, for each J. */
+    private static final class Menu {
+
+        /** The menu of crib PLAIN encoding to CIPHER, over an alphabet of
+         *  SIZE letters. */
+        Menu(int[] plain, int[] cipher, int size) {
+            int[] degree = new int[size];
+            for (int j = 0; j < plain.length; j++) {
+                degree[plain[j]] += 1;
+                degree[cipher[j]] += 1;
+            }
+            _other = new int[size][];
+            _index = new int[size][];
+            for (int a = 0; a < size; a++) {
+                _other[a] = new int[degree[a]];
+                _index[a] = new int[degree[a]];
+            }
+            int[] fill = new int[size];
+            for (int j = 0; j < plain.length; j++) {
+                add(plain[j], cipher[j], j, fill);
+                add(cipher[j], plain[j], j, fill);
+            }
+            int best = plain[0];
+            for (int a = 0; a < size; a++) {
+                if (degree[a] > degree[best]) {
+                    best = a;
+                }
+            }
+            _start = best;
+        }
+
+        /** Add the edge from A to B labeled J, where FILL counts the
+         *  edges of each letter added so far. */
+        private void add(int a, int b, int j, int[] fill) {
+            _other[a][fill[a]] = b;
+            _index[a][fill[a]] = j;
+            fill[a] += 1;
+        }
+
+        /** _other[a][e] is the letter at the far end of edge E of letter
+         *  A, and _index[a][e] is its crib index. */
+        private final int[][] _other, _index;
+
+        /** Letter at which plugboard guesses are made: the one with the
+         *  most edges. */
+        private final int _start;
+    }
+
+    /** The search of one rotor order at one leftmost rotor position,
+     *  with its own scratch space. */
+    private final class Worker {
+
+        /** A worker testing ORDER against MENU, for crib PLAIN encoding to
+         *  CIPHER at OFFSET. */
+        Worker(Scrambler order, Menu menu, int[] plain, int[] cipher,
+               int offset) {
+            _order = order;
+            _menu = menu;
+            _plain = plain;
+            _cipher = cipher;
+            _offset = offset;
+            int m = plain.length;
+            _at = new int[m][order.numRotors()];
+            _middle = new int[m][_size];
+            _middleKey = new long[m];
+            Arrays.fill(_middleKey, -1);
+            _plug = new int[_size];
+            Arrays.fill(_plug, -1);
+            _queue = new int[_size];
+            _refuted = new int[_size];
+        }
+
+        /** Test every starting position with the leftmost (slowest)
+         *  non-reflector rotor at LEFTMOST, adding the number tested to
+         *  TESTED, and return the at most _limit stops with the most
+         *  matches. */
+        List<Stop> run(int leftmost, LongAdder tested) {
+            PriorityQueue<Stop> best = new PriorityQueue<Stop>(BY_MATCHES);
+            int[] start = new int[_order.numRotors()];
+            start[1] = leftmost;
+            long count = 0;
+            do {
+                test(start, best);
+                count += 1;
+            } while (_order.nextStart(start));
+            tested.add(count);
+            return new ArrayList<Stop>(best);
+        }
+
+        /** Test starting positions START, adding any stops to BEST, a
+         *  queue of at most _limit stops with the fewest matches first. */
+        private void test(int[] start, PriorityQueue<Stop> best) {
+            int[] p = start.clone();
+            SteppingModel model = _order.stepping();
+            model.advance(p, _offset);
+            for (int j = 0; j < _at.length; j++) {
+                model.step(p);
+                System.arraycopy(p, 0, _at[j], 0, p.length);
+                long key = _order.middleKey(p);
+                if (key != _middleKey[j]) {
+                    _middleKey[j] = key;
+                    _order.fillMiddle(_middle[j], p);
+                }
+            }
+            int letter = _menu._start;
+            _generation += 1;
+            for (int guess = 0; guess < _size; guess++) {
+                if (_refuted[guess] == _generation) {
+                    continue;
+                }
+                if (consistent(letter, guess)) {
+                    int matches = matches();
+                    if (best.size() < _limit) {
+                        best.add(stop(start, matches));
+                    } else if (matches > best.peek().matches()) {
+                        best.poll();
+                        best.add(stop(start, matches));
+                    }
+                }
+            }
+        }
+
+        /** Return true iff guessing that the plugboard maps LETTER to
+         *  GUESS leads to no contradiction along the menu.  Leaves the
+         *  deduced plugboard in _plug. */
+        private boolean consistent(int letter, int guess) {
+            for (int k = 0; k < _tail; k++) {
+                _plug[_queue[k]] = -1;
+            }
+            _head = _tail = 0;
+            if (!assign(letter, guess)) {
+                return false;
+            }
+            while (_head < _tail) {
+                int a = _queue[_head];
+                _head += 1;
+                int[] others = _menu._other[a];
+                int[] index = _menu._index[a];
+                for (int e = 0; e < others.length; e++) {
+                    int b = others[e], v = scramble(index[e], _plug[a]);
+                    if (!assign(b, v)) {
+                        refute(letter, b, v);
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Record the guesses for LETTER refuted along with the one just
+         *  tried, which failed on trying to pair X with Y.  Each deduction
+         *  along the menu is reversible, so every pairing deduced from a
+         *  guess, and the failed one, is true iff the guess is.  Any of
+         *  them that pairs LETTER with another letter is a guess that
+         *  would fail too. */
+        private void refute(int letter, int x, int y) {
+            for (int k = 0; k < _tail; k++) {
+                if (_plug[_queue[k]] == letter) {
+                    _refuted[_queue[k]] = _generation;
+                }
+            }
+            if (x == letter) {
+                _refuted[y] = _generation;
+            } else if (y == letter) {
+                _refuted[x] = _generation;
+            }
+        }
+
+        /** Record that the plugboard maps X to Y (and so Y to X).  Returns
+         *  false if that contradicts what is already deduced. */
+        private boolean assign(int x, int y) {
+            if (_plug[x] == y) {
+                return true;
+            }
+            if (_plug[x] >= 0 || _plug[y] >= 0) {
+                return false;
+            }
+            _plug[x] = y;
+            _plug[y] = x;
+            _queue[_tail] = x;
+            _tail += 1;
+            if (y != x) {
+                _queue[_tail] = y;
+                _tail += 1;
+            }
+            return true;
+        }
+
+        /** Return the scrambler at crib index J applied to C. */
+        private int scramble(int j, int c) {
+            int[] at = _at[j];
+            return _order.convert(_middle[j], at[at.length - 1], c);
+        }
+
+        /** Return the number of crib characters that encode correctly
+         *  with only the plugboard pairs in _plug. */
+        private int matches() {
+            int result = 0;
+            for (int j = 0; j < _plain.length; j++) {
+                int a = _plug[_plain[j]] >= 0 ? _plug[_plain[j]] : _plain[j];
+                int b = scramble(j, a);
+                if ((_plug[b] >= 0 ? _plug[b] : b) == _cipher[j]) {
+                    result += 1;
+                }
+            }
+            return result;
+        }
+
+        /** Return the stop for START with the plugboard in _plug, which
+         *  gives MATCHES matches. */
+        private Stop stop(int[] start, int matches) {
+            return new Stop(_order.names(),
+                            SearchSupport.positions(_alphabet, start),
+                            SearchSupport.plugboard(_alphabet, _plug),
+                            matches);
+        }
+
+        /** Rotor order searched. */
+        private final Scrambler _order;
+
+        /** Menu of the crib. */
+        private final Menu _menu;
+
+        /** Crib and corresponding ciphertext, as indices. */
+        private final int[] _plain, _cipher;
+
+        /** Offset of the crib in the message. */
+        private final int _offset;
+
+        /** _at[j] is the rotor positions at which crib character J is
+         *  encoded. */
+        private final int[][] _at;
+
+        /** _middle[j] is the mapping through all but the fast rotor (see
+         *  Scrambler.fillMiddle) at crib index J.  Starting positions are
+         *  tried with the fast rotor varying fastest, so it rarely
+         *  changes. */
+        private final int[][] _middle;
+
+        /** _middleKey[j] is the Scrambler.middleKey of the positions for
+         *  which _middle[j] was filled, or -1 if it is not yet filled. */
+        private final long[] _middleKey;
+
+        /** _plug[x] is the deduced plugboard image of X, or -1. */
+        private final int[] _plug;
+
+        /** The letters whose plugboard images are deduced, in order.
+         *  Those whose menu edges have not yet been followed are
+         *  _queue[_head .. _tail - 1]. */
+        private final int[] _queue;
+
+        /** Bounds of the live part of _queue. */
+        private int _head, _tail;
+
+        /** _refuted[g] == _generation iff guess G is known to fail at the
+         *  starting positions being tested. */
+        private final int[] _refuted;
+
+        /** Identifies the starting positions being tested. */
+        private int _generation;
+    }
+
+    /** Search for the settings of a ciphertext, as specified by ARGS:
+     *  CONFIG CIPHERTEXT CRIB, preceded by options --threads=N (threads
+     *  to use; default the number of processors), --offset=K (position
+     *  of the crib in the ciphertext; default every possible position),
+     *  and --limit=N (most stops to print per position; default 100).
+     *  Whitespace in CIPHERTEXT is ignored.  Prints one setting line per
+     *  stop, best first, and the search rate on the standard error. */
+    public static void main(String... args) {
+        try {
+            CommandArgs options =
+                new CommandArgs("--threads=([1-9]\\d*) --offset=(\\d+) "
+                                + "--limit=([1-9]\\d*) --=(.*){3}", args);
+            if (!options.ok()) {
+                throw error("Usage: java enigma.CribSearch [--threads=N]"
+                            + " [--offset=K] [--limit=N]"
+                            + " CONFIG CIPHERTEXT CRIB");
+            }
+            int threads = Runtime.getRuntime().availableProcessors();
+            if (options.contains("--threads")) {
+                threads = Main.intOption(options, "--threads",
+                                          Main.MAX_THREADS);
+            }
+            int limit = DEFAULT_LIMIT;
+            if (options.contains("--limit")) {
+                limit = Main.intOption(options, "--limit",
+                                       Integer.MAX_VALUE);
+            }
+            List<String> files = options.get("--");
+            Machine inventory = SearchSupport.readConfig(files.get(0));
+            String ciphertext = files.get(1).replaceAll("\\s+", "");
+            String crib = files.get(2).replaceAll("\\s+", "");
+            List<Integer> offsets;
+            if (options.contains("--offset")) {
+                offsets = Collections.singletonList(
+                    Main.intOption(options, "--offset", Integer.MAX_VALUE));
+            } else {
+                offsets = offsets(ciphertext, crib);
+            }
+            CribSearch search = new CribSearch(inventory, threads, limit);
+            long start = System.nanoTime();
+            for (int offset : offsets) {
+                for (Stop stop : search.search(ciphertext, crib, offset)) {
+                    System.out.printf("%d %d/%d %s%n", offset, stop.matches(),
+                                      crib.length(), stop.setting());
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("%d states in %.3f s (%.0f states/s)%n",
+                              search.statesTested(), seconds,
+                              search.statesTested() / seconds);
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Default most stops reported per crib position. */
+    private static final int DEFAULT_LIMIT = 100;
+
+    /** Orders stops by increasing number of matches. */
+    private static final Comparator<Stop> BY_MATCHES =
+        Comparator.comparingInt(Stop::matches);
+
+    /** Common alphabet of the rotors. */
+    private final Alphabet _alphabet;
+
+    /** Size of _alphabet. */
+    private final int _size;
+
+    /** Number of search threads. */
+    private final int _threads;
+
+    /** Most stops reported by one search. */
+    private final int _limit;
+
+    /** The available rotors. */
+    private final RotorInventory _inventory;
+
+    /** Number of rotor states tested by all completed searches. */
+    private final LongAdder _tested = new LongAdder();
+
+}
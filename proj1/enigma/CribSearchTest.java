@@ -0,0 +1,83 @@
+package enigma;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the CribSearch class.
+ *  @author Arthur Utnehmer
+ */
+public class CribSearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    private static final String[] ROTORS = { "B", "Beta", "III", "I" };
+
+    private static final String PLAIN =
+        "WETTERVORHERSAGEBISKAYAFROMHISSHOULDERHIAWATHA";
+
+    private static Machine inventory() {
+        return TestUtils.searchInventory(ROTORS);
+    }
+
+    private static String encode(String positions, String plugboard,
+                                 String msg) {
+        return TestUtils.searchEncode(ROTORS, positions, plugboard, msg);
+    }
+
+    @Test
+    public void findsSetting() {
+        String cipher = encode("QXF", "(AT) (KM) (EZ)", PLAIN);
+        String crib = PLAIN.substring(5, 25);
+        assertTrue(CribSearch.offsets(cipher, crib).contains(5));
+        CribSearch search = new CribSearch(inventory(), 3, 1000);
+        List<CribSearch.Stop> stops = search.search(cipher, crib, 5);
+        assertEquals(6 * 26 * 26 * 26, search.statesTested());
+        CribSearch.Stop found = null;
+        for (CribSearch.Stop stop : stops) {
+            if (stop.setting().startsWith("* B Beta III I QXF")) {
+                found = stop;
+            }
+        }
+        assertNotNull(found);
+        assertEquals(crib.length(), found.matches());
+        assertTrue(found.plugboard().contains("(AT)"));
+        assertTrue(stops.size() < 50);
+        String decoded = encode(found.positions(), found.plugboard(), cipher);
+        assertEquals(crib, decoded.substring(5, 25));
+    }
+
+    @Test
+    public void keepsBestStops() {
+        String cipher = encode("QXF", "(AT) (KM) (EZ)", PLAIN);
+        String crib = PLAIN.substring(5, 25);
+        CribSearch search = new CribSearch(inventory(), 3, 1);
+        List<CribSearch.Stop> stops = search.search(cipher, crib, 5);
+        assertEquals(6 * 26 * 26 * 26, search.statesTested());
+        assertEquals(1, stops.size());
+        assertTrue(stops.get(0).setting().startsWith("* B Beta III I QXF"));
+
+        String shortCrib = crib.substring(0, 4);
+        List<CribSearch.Stop> first =
+            new CribSearch(inventory(), 3, 5).search(cipher, shortCrib, 5);
+        List<CribSearch.Stop> second =
+            new CribSearch(inventory(), 2, 5).search(cipher, shortCrib, 5);
+        assertEquals(5, first.size());
+        assertEquals(first.toString(), second.toString());
+        for (CribSearch.Stop stop : first) {
+            assertEquals(shortCrib.length(), stop.matches());
+        }
+    }
+
+    @Test
+    public void offsetsExcludeSelfEncoding() {
+        assertEquals(List.of(0, 2), CribSearch.offsets("ABCB", "BA"));
+    }
+}
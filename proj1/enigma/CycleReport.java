@@ -0,0 +1,80 @@
+package enigma;
+
+/** The periodic behavior of the rotor positions of a machine from a
+ *  given starting position: the number of key presses before the
+ *  positions begin to repeat (the tail), the length of the cycle they
+ *  then repeat (the period), and how many times each rotor moves in one
+ *  period.  The tail is nonzero only when the starting position cannot
+ *  be reached by stepping, e.g. a middle rotor set on its notch.
+ *  @author Arthur Utnehmer
+ */
+class CycleReport {
+
+    /** A report for rotors named NAMES, reflector first, whose positions
+     *  repeat with period PERIOD after TAIL presses, and in which rotor
+     *  #K moves MOVES[K] times per period. */
+    CycleReport(String[] names, long tail, long period, long[] moves) {
+        _names = names.clone();
+        _tail = tail;
+        _period = period;
+        _moves = moves.clone();
+    }
+
+    /** Return the number of key presses before the positions first reach
+     *  a position they later return to. */
+    long tail() {
+        return _tail;
+    }
+
+    /** Return the number of key presses after which the positions
+     *  repeat. */
+    long period() {
+        return _period;
+    }
+
+    /** Return the number of rotors, counting the reflector. */
+    int numRotors() {
+        return _names.length;
+    }
+
+    /** Return the name of rotor #K. */
+    String name(int k) {
+        return _names[k];
+    }
+
+    /** Return the number of times rotor #K moves in one period. */
+    long moves(int k) {
+        return _moves[k];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("period %d after %d presses",
+                                    _period, _tail));
+        for (int k = 0; k < _names.length; k += 1) {
+            result.append(String.format("%n  %s", _names[k]));
+            if (_moves[k] == 0) {
+                result.append(" stationary");
+            } else {
+                result.append(String.format(" moves %d, every %.2f",
+                                            _moves[k],
+                                            (double) _period / _moves[k]));
+            }
+        }
+        return result.toString();
+    }
+
+    /** Rotor names, reflector first. */
+    private final String[] _names;
+
+    /** Presses before the cycle. */
+    private final long _tail;
+
+    /** Length of the cycle. */
+    private final long _period;
+
+    /** Moves of each rotor per period. */
+    private final long[] _moves;
+
+}
@@ -0,0 +1,441 @@
+package enigma;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import static enigma.EnigmaException.*;
+
+/** A long-running encryption service.  The server holds one configured
+ *  machine and converts messages sent to it over a local TCP or
+ *  Unix-domain socket, so that clients pay neither JVM startup nor
+ *  configuration parsing per message.
+ *
+ *  Each request is a frame of a setting line (in the form of an input
+ *  file's setting lines, beginning with '*') and a message; whitespace
+ *  in the message is ignored.  Each response is a frame of a status and
+ *  either the converted message, ungrouped, or an error message.  A
+ *  frame is a sequence of length-prefixed UTF-8 strings:
+ *  <pre>
+ *    request:  int setting length, setting, int message length, message
+ *    response: byte OK or FAILED, int length, text
+ *  </pre>
+ *  all ints big-endian and all lengths in bytes.  A client may send any
+ *  number of requests before reading any responses; they are answered
+ *  in order, and responses are flushed whenever the server has caught up
+ *  with the requests that have arrived.  An error in one request fails
+ *  only that request, but a malformed frame closes the connection.
+ *
+ *  The spec (see MachineSpec) set up by each distinct setting line is
+ *  kept, up to a limit, so a repeated setting line costs only a map
+ *  lookup.  Messages are converted by MachineState, one character at a
+ *  time through the spec's rotors, which are table lookups when the
+ *  base machine's rotors are compiled, as Main compiles them before
+ *  serving.  Each connection is served by its own thread: a virtual
+ *  thread where the runtime provides them, and otherwise a thread from
+ *  a cached pool.
+ *  @author Arthur Utnehmer
+ */
+class EnigmaServer implements Closeable {
+
+    /** Response status of a converted message. */
+    static final byte OK = 0;
+
+    /** Response status of a failed request. */
+    static final byte FAILED = 1;
+
+    /** Largest number of bytes in any string of a frame. */
+    static final int MAX_LENGTH = 1 << 24;
+
+    /** A server converting with copies of BASE, applying each setting
+     *  line to a copy with SETUP, and keeping the specs of at most
+     *  MAXSPECS setting lines. */
+    EnigmaServer(Machine base, BiConsumer<Machine, String> setUp,
+                 int maxSpecs) {
+        _base = base;
+        _setUp = setUp;
+        _maxSpecs = maxSpecs;
+        _connections = connectionExecutor();
+    }
+
+    /** Return a listening channel bound to ADDRESS, which is either
+     *  "unix:PATH", for a Unix-domain socket at PATH, or "[HOST:]PORT",
+     *  for a TCP socket on HOST (by default the loopback interface).
+     *  A socket file left at PATH by a server that is no longer
+     *  listening is replaced. */
+    static ServerSocketChannel bind(String address) throws IOException {
+        ServerSocketChannel result;
+        SocketAddress local;
+        if (address.startsWith(UNIX_PREFIX)) {
+            UnixDomainSocketAddress unix = UnixDomainSocketAddress.of(
+                address.substring(UNIX_PREFIX.length()));
+            clearStale(unix);
+            result = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            local = unix;
+        } else {
+            result = ServerSocketChannel.open();
+            local = inetAddress(address);
+        }
+        try {
+            result.bind(local);
+        } catch (IOException excp) {
+            result.close();
+            throw excp;
+        }
+        return result;
+    }
+
+    /** Delete the socket file of ADDRESS if there is one and no server
+     *  accepts connections on it. */
+    private static void clearStale(UnixDomainSocketAddress address)
+        throws IOException {
+        Path path = address.getPath();
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)
+            || !Files.readAttributes(path, BasicFileAttributes.class,
+                                     LinkOption.NOFOLLOW_LINKS).isOther()) {
+            return;
+        }
+        try {
+            SocketChannel.open(address).close();
+        } catch (ConnectException excp) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /** Return a channel connected to a server listening at ADDRESS,
+     *  which is as for bind. */
+    static SocketChannel connect(String address) throws IOException {
+        if (address.startsWith(UNIX_PREFIX)) {
+            return SocketChannel.open(UnixDomainSocketAddress.of(
+                address.substring(UNIX_PREFIX.length())));
+        }
+        return SocketChannel.open(inetAddress(address));
+    }
+
+    /** Return the TCP socket address "[HOST:]PORT". */
+    private static InetSocketAddress inetAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        try {
+            int port = Integer.parseInt(address.substring(colon + 1));
+            if (colon < 0) {
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                             port);
+            }
+            return new InetSocketAddress(address.substring(0, colon), port);
+        } catch (NumberFormatException excp) {
+            throw error("bad server address %s", address);
+        } catch (IllegalArgumentException excp) {
+            throw error("bad server address %s: %s", address,
+                        excp.getMessage());
+        }
+    }
+
+    /** Accept and serve connections on LISTENER until it or I am
+     *  closed. */
+    void serve(ServerSocketChannel listener) throws IOException {
+        _listener = listener;
+        try {
+            while (true) {
+                SocketChannel connection = listener.accept();
+                try {
+                    _connections.execute(() -> handle(connection));
+                } catch (RejectedExecutionException excp) {
+                    connection.close();
+                    return;
+                }
+            }
+        } catch (ClosedChannelException excp) {
+            return;
+        }
+    }
+
+    /** Stop accepting connections, removing the socket file of a
+     *  Unix-domain listener.  Connections already open are served until
+     *  their clients close them. */
+    @Override
+    public void close() throws IOException {
+        ServerSocketChannel listener = _listener;
+        if (listener != null) {
+            SocketAddress local =
+                listener.isOpen() ? listener.getLocalAddress() : null;
+            listener.close();
+            if (local instanceof UnixDomainSocketAddress) {
+                Files.deleteIfExists(
+                    ((UnixDomainSocketAddress) local).getPath());
+            }
+        }
+        _connections.shutdown();
+    }
+
+    /** Return the number of requests answered so far. */
+    long requests() {
+        return _requests.sum();
+    }
+
+    /** Answer the requests arriving on CONNECTION until its client closes
+     *  it or sends a malformed frame. */
+    private void handle(SocketChannel connection) {
+        try (connection) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(connection), BUFFER_SIZE));
+            DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(connection), BUFFER_SIZE));
+            while (true) {
+                String setting;
+                try {
+                    setting = readString(in);
+                } catch (EOFException excp) {
+                    break;
+                }
+                String message = readString(in);
+                String reply;
+                byte status;
+                try {
+                    reply = convert(setting, message);
+                    status = OK;
+                } catch (EnigmaException excp) {
+                    reply = excp.getMessage();
+                    status = FAILED;
+                } catch (RuntimeException excp) {
+                    reply = String.format("malformed request (%s)", excp);
+                    status = FAILED;
+                }
+                out.writeByte(status);
+                writeString(out, reply);
+                _requests.increment();
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException | EnigmaException excp) {
+            return;
+        }
+    }
+
+    /** Return the conversion of MESSAGE, less whitespace, by a machine
+     *  set up by SETTING. */
+    String convert(String setting, String message) {
+        if (!setting.startsWith("*")) {
+            throw error("setting line must begin with '*'");
+        }
+        MachineSpec spec = _specs.get(setting);
+        if (spec == null) {
+            Machine machine = _base.copy();
+            _setUp.accept(machine, setting);
+            spec = machine.spec();
+            if (_specs.size() >= _maxSpecs) {
+                _specs.clear();
+            }
+            _specs.put(setting, spec);
+        }
+        char[] msg = new char[message.length()];
+        int len = 0;
+        for (int k = 0; k < message.length(); k++) {
+            char ch = message.charAt(k);
+            if (!MessageReader.isWhitespace(ch)) {
+                msg[len] = ch;
+                len += 1;
+            }
+        }
+        spec.start().convert(msg, 0, len, msg, 0);
+        return new String(msg, 0, len);
+    }
+
+    /** Return the next string of a frame from IN.  Throws EOFException if
+     *  IN is at its end before the string starts. */
+    static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0 || len > MAX_LENGTH) {
+            throw error("bad frame length %d", len);
+        }
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Write S to OUT as a string of a frame, and return the number of
+     *  bytes written. */
+    static int writeString(DataOutputStream out, String s)
+        throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_LENGTH) {
+            throw error("string too long for a frame");
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return Integer.BYTES + bytes.length;
+    }
+
+    /** A connection to a server, from which requests may be pipelined.
+     *  So that neither side can block writing to the other while the
+     *  other is also blocked writing, a client reads responses early,
+     *  holding them until asked for, whenever the requests it has sent
+     *  but not had answered exceed MAX_IN_FLIGHT bytes. */
+    static final class Client implements Closeable {
+
+        /** A client of the server listening at ADDRESS (as for bind). */
+        Client(String address) throws IOException {
+            _channel = connect(address);
+            _in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(_channel), BUFFER_SIZE));
+            _out = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(_channel), BUFFER_SIZE));
+        }
+
+        /** Queue a request to convert MESSAGE with setting line SETTING.
+         *  Requests are sent when flushed, when a response is received,
+         *  or when too many are in flight. */
+        void send(String setting, String message) throws IOException {
+            int size = writeString(_out, setting)
+                + writeString(_out, message);
+            _sizes.add(size);
+            _inFlight += size;
+            while (_inFlight > MAX_IN_FLIGHT) {
+                readResponse();
+            }
+        }
+
+        /** Send any queued requests. */
+        void flush() throws IOException {
+            _out.flush();
+        }
+
+        /** Return the response to the oldest unanswered request, which
+         *  is thrown as an EnigmaException if it reports an error. */
+        String receive() throws IOException {
+            if (_responses.isEmpty()) {
+                readResponse();
+            }
+            String text = _responses.remove();
+            if (_failed.remove()) {
+                throw error("%s", text);
+            }
+            return text;
+        }
+
+        /** Return the conversion of MESSAGE with setting line SETTING,
+         *  waiting for the response. */
+        String convert(String setting, String message) throws IOException {
+            send(setting, message);
+            return receive();
+        }
+
+        /** Send any queued requests and read the next response into
+         *  _responses and _failed. */
+        private void readResponse() throws IOException {
+            if (_sizes.isEmpty()) {
+                throw error("no request awaiting a response");
+            }
+            _out.flush();
+            byte status = _in.readByte();
+            _responses.add(readString(_in));
+            _failed.add(status != OK);
+            _inFlight -= _sizes.remove();
+        }
+
+        @Override
+        public void close() throws IOException {
+            _channel.close();
+        }
+
+        /** Most bytes of requests left unanswered before responses are
+         *  read early: well under the socket buffers of either side. */
+        private static final int MAX_IN_FLIGHT = 1 << 15;
+
+        /** Connection to the server. */
+        private final SocketChannel _channel;
+
+        /** Responses from the server. */
+        private final DataInputStream _in;
+
+        /** Requests to the server. */
+        private final DataOutputStream _out;
+
+        /** Sizes in bytes of the requests not yet answered, oldest
+         *  first. */
+        private final ArrayDeque<Integer> _sizes = new ArrayDeque<Integer>();
+
+        /** Total of _sizes. */
+        private long _inFlight;
+
+        /** Texts of responses read but not yet received, oldest
+         *  first. */
+        private final ArrayDeque<String> _responses = new ArrayDeque<String>();
+
+        /** Whether each of _responses reports an error. */
+        private final ArrayDeque<Boolean> _failed = new ArrayDeque<Boolean>();
+    }
+
+    /** Return an executor running each task on its own virtual thread, if
+     *  the runtime has them, and otherwise on a cached pool of daemon
+     *  threads. */
+    private static ExecutorService connectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException excp) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "enigma-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /** Prefix of the address of a Unix-domain socket. */
+    private static final String UNIX_PREFIX = "unix:";
+
+    /** Size in bytes of each connection's buffers. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Machine copied to set up each new setting line. */
+    private final Machine _base;
+
+    /** Applies a setting line to a machine. */
+    private final BiConsumer<Machine, String> _setUp;
+
+    /** Largest number of specs kept. */
+    private final int _maxSpecs;
+
+    /** Spec set up by each recently seen setting line. */
+    private final ConcurrentHashMap<String, MachineSpec> _specs =
+        new ConcurrentHashMap<String, MachineSpec>();
+
+    /** Runs the handler of each connection. */
+    private final ExecutorService _connections;
+
+    /** Number of requests answered. */
+    private final LongAdder _requests = new LongAdder();
+
+    /** Channel accepting connections, once serving. */
+    private volatile ServerSocketChannel _listener;
+
+}
@@ -0,0 +1,131 @@
+package enigma;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the EnigmaServer class.
+ *  @author Arthur Utnehmer
+ */
+public class EnigmaServerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    private static final Alphabet AZ = new Alphabet(TestUtils.UPPER_STRING);
+
+    private static final String SETTING = "* B Beta III IV I AXLE (HQ) (EX)";
+
+    private static Machine base() {
+        return TestUtils.navalMachine(AZ);
+    }
+
+    /** Set up M from the setting line LINE "* ROTORS... POSITIONS
+     *  CYCLES...". */
+    private static void setUp(Machine m, String line) {
+        String[] words = line.trim().split("\\s+", 8);
+        m.insertRotors(new String[] {
+            words[1], words[2], words[3], words[4], words[5] });
+        m.setRotors(words[6]);
+        m.setPlugboard(new Permutation(words.length > 7 ? words[7] : "",
+                                       AZ));
+    }
+
+    private static String expected(String setting, String msg) {
+        Machine m = base();
+        setUp(m, setting);
+        return m.convert(msg);
+    }
+
+    /** Start a server on LISTENER in a daemon thread, and return it. */
+    private static EnigmaServer start(ServerSocketChannel listener) {
+        EnigmaServer server =
+            new EnigmaServer(base(), EnigmaServerTest::setUp, 2);
+        Thread thread = new Thread(() -> {
+            try {
+                server.serve(listener);
+            } catch (IOException excp) {
+                return;
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    @Test
+    public void pipelinesOverTcp() throws IOException {
+        ServerSocketChannel listener = EnigmaServer.bind("0");
+        int port = ((InetSocketAddress) listener.getLocalAddress()).getPort();
+        try (EnigmaServer server = start(listener);
+             EnigmaServer.Client client =
+                 new EnigmaServer.Client("127.0.0.1:" + port)) {
+            String other = "* B Beta I IV III ZZZZ";
+            client.send(SETTING, "FROM HIS SHOULDER HIAWATHA");
+            client.send("B Beta III IV I AXLE", "HELLO");
+            client.send(SETTING, "TOOK THE CAMERA");
+            client.send("* B Beta III IV I AXLE", "HELL0");
+            client.send(other, "");
+            client.flush();
+            assertEquals(expected(SETTING, "FROMHISSHOULDERHIAWATHA"),
+                         client.receive());
+            try {
+                client.receive();
+                fail("setting line without '*' accepted");
+            } catch (EnigmaException excp) {
+                assertTrue(excp.getMessage().contains("'*'"));
+            }
+            assertEquals(expected(SETTING, "TOOKTHECAMERA"),
+                         client.receive());
+            try {
+                client.receive();
+                fail("character outside the alphabet accepted");
+            } catch (EnigmaException excp) {
+                assertTrue(excp.getMessage().contains("0"));
+            }
+            assertEquals("", client.receive());
+            assertEquals(expected(SETTING, "QUIET"),
+                         client.convert(SETTING, "QUIET"));
+            assertEquals(6, server.requests());
+        }
+    }
+
+    @Test
+    public void servesUnixDomainSocket() throws IOException {
+        Path dir = Files.createTempDirectory("enigma");
+        Path socket = dir.resolve("server.sock");
+        String address = "unix:" + socket;
+        try {
+            EnigmaServer.bind(address).close();
+            assertTrue(Files.exists(socket));
+            try (EnigmaServer server = start(EnigmaServer.bind(address));
+                 EnigmaServer.Client client =
+                     new EnigmaServer.Client(address)) {
+                assertEquals(expected(SETTING, "HELLOWORLD"),
+                             client.convert(SETTING, "HELLO WORLD"));
+                assertEquals(1, server.requests());
+                try {
+                    EnigmaServer.bind(address).close();
+                    fail("bound over a listening server");
+                } catch (IOException excp) {
+                    assertTrue(Files.exists(socket));
+                }
+            }
+            assertFalse(Files.exists(socket));
+        } finally {
+            Files.deleteIfExists(socket);
+            Files.delete(dir);
+        }
+    }
+
+}
@@ -0,0 +1,178 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static enigma.EnigmaException.*;
+
+/** Writes lines of text split into fixed-size groups separated by a
+ *  fixed string, e.g. "QVPQS OKOIL PUBKJ".  Text for one line may arrive
+ *  in any number of pieces; a group that straddles two pieces is
+ *  continued where the previous piece stopped.  Output is collected in
+ *  a reusable buffer that is written out only when it fills or on
+ *  flush(), so formatting allocates nothing.
+ *  @author Arthur Utnehmer
+ */
+class GroupWriter {
+
+    /** A writer sending characters to OUT, in groups of GROUPSIZE
+     *  characters separated by SEPARATOR, with lines ending in
+     *  LINEEND.  A GROUPSIZE of 0 disables grouping.  Buffers up to
+     *  BUFFERSIZE characters. */
+    GroupWriter(Writer out, int groupSize, String separator,
+                String lineEnd, int bufferSize) {
+        this(groupSize, separator, lineEnd, bufferSize);
+        _chars = new char[_capacity];
+        _charSink = out;
+    }
+
+    /** A writer sending characters to OUT as single bytes, in groups of
+     *  GROUPSIZE characters separated by SEPARATOR, with lines ending in
+     *  LINEEND.  Every character must be ASCII, which any charset accepted
+     *  by asciiCompatible encodes as itself.  A GROUPSIZE of 0 disables
+     *  grouping.  Buffers up to BUFFERSIZE bytes. */
+    GroupWriter(WritableByteChannel out, int groupSize, String separator,
+                String lineEnd, int bufferSize) {
+        this(groupSize, separator, lineEnd, bufferSize);
+        _bytes = new byte[_capacity];
+        _byteSink = out;
+    }
+
+    /** Common initialization for GROUPSIZE, SEPARATOR, LINEEND, and
+     *  BUFFERSIZE. */
+    private GroupWriter(int groupSize, String separator, String lineEnd,
+                        int bufferSize) {
+        if (groupSize < 0) {
+            throw error("negative group size");
+        }
+        _groupSize = groupSize == 0 ? Integer.MAX_VALUE : groupSize;
+        _separator = separator.toCharArray();
+        _lineEnd = lineEnd.toCharArray();
+        _capacity = Math.max(bufferSize,
+                _separator.length + _lineEnd.length + 1);
+    }
+
+    /** Return true iff CHARSET encodes ASCII characters as themselves,
+     *  one byte each. */
+    static boolean asciiCompatible(Charset charset) {
+        return charset.equals(StandardCharsets.US_ASCII)
+            || charset.equals(StandardCharsets.UTF_8)
+            || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /** Return true iff every character of TEXT is ASCII, and so can be
+     *  written by a byte-oriented GroupWriter. */
+    static boolean isAscii(String text) {
+        for (int x = 0; x < text.length(); x++) {
+            if (text.charAt(x) > MAX_ASCII) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Append the LEN characters of SRC starting at OFF to the current
+     *  line. */
+    void write(char[] src, int off, int len) throws IOException {
+        while (len > 0) {
+            if (_groupCount == _groupSize) {
+                put(_separator, 0, _separator.length);
+                _groupCount = 0;
+            }
+            int run = Math.min(len, _groupSize - _groupCount);
+            run = Math.min(run, _capacity - _length);
+            if (run == 0) {
+                flush();
+                continue;
+            }
+            put(src, off, run);
+            _groupCount += run;
+            off += run;
+            len -= run;
+        }
+    }
+
+    /** End the current line. */
+    void endLine() throws IOException {
+        put(_lineEnd, 0, _lineEnd.length);
+        _groupCount = 0;
+    }
+
+    /** Write out everything buffered so far. */
+    void flush() throws IOException {
+        if (_chars != null) {
+            _charSink.write(_chars, 0, _length);
+            _charSink.flush();
+        } else {
+            ByteBuffer buffer = ByteBuffer.wrap(_bytes, 0, _length);
+            while (buffer.hasRemaining()) {
+                _byteSink.write(buffer);
+            }
+        }
+        _length = 0;
+    }
+
+    /** Flush and close the destination. */
+    void close() throws IOException {
+        flush();
+        if (_chars != null) {
+            _charSink.close();
+        } else {
+            _byteSink.close();
+        }
+    }
+
+    /** Copy the LEN characters of SRC starting at OFF into the buffer,
+     *  flushing first if they do not fit. */
+    private void put(char[] src, int off, int len) throws IOException {
+        if (_length + len > _capacity) {
+            flush();
+        }
+        if (_chars != null) {
+            System.arraycopy(src, off, _chars, _length, len);
+        } else {
+            for (int x = 0; x < len; x++) {
+                _bytes[_length + x] = (byte) src[off + x];
+            }
+        }
+        _length += len;
+    }
+
+    /** Largest ASCII character. */
+    private static final char MAX_ASCII = 0x7f;
+
+    /** Characters per group (Integer.MAX_VALUE if ungrouped). */
+    private final int _groupSize;
+
+    /** Text between groups. */
+    private final char[] _separator;
+
+    /** Text ending each line. */
+    private final char[] _lineEnd;
+
+    /** Size of the output buffer. */
+    private final int _capacity;
+
+    /** Output buffer in character mode, or null. */
+    private char[] _chars;
+
+    /** Output buffer in byte mode, or null. */
+    private byte[] _bytes;
+
+    /** Destination in character mode. */
+    private Writer _charSink;
+
+    /** Destination in byte mode. */
+    private WritableByteChannel _byteSink;
+
+    /** Number of buffered characters or bytes. */
+    private int _length;
+
+    /** Number of characters in the current group. */
+    private int _groupCount;
+
+}
@@ -0,0 +1,64 @@
+package enigma;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the GroupWriter class.
+ *  @author Arthur Utnehmer
+ */
+public class GroupWriterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void groupsAcrossPieces() throws IOException {
+        StringWriter out = new StringWriter();
+        GroupWriter groups = new GroupWriter(out, 5, " ", "\n", 8);
+        char[] text = "QVPQSOKOILPUBKJZPISFXDW".toCharArray();
+        groups.write(text, 0, 3);
+        groups.write(text, 3, 9);
+        groups.write(text, 12, 11);
+        groups.endLine();
+        groups.endLine();
+        groups.write(text, 0, 5);
+        groups.endLine();
+        groups.flush();
+        assertEquals("QVPQS OKOIL PUBKJ ZPISF XDW\n\nQVPQS\n",
+                     out.toString());
+    }
+
+    @Test
+    public void byteModeAndCustomSeparator() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GroupWriter groups = new GroupWriter(Channels.newChannel(bytes),
+                                             4, "--", "\r\n", 3);
+        char[] text = "ABCDEFGHIJ".toCharArray();
+        groups.write(text, 0, text.length);
+        groups.endLine();
+        groups.flush();
+        assertEquals("ABCD--EFGH--IJ\r\n", bytes.toString());
+    }
+
+    @Test
+    public void ungrouped() throws IOException {
+        StringWriter out = new StringWriter();
+        GroupWriter groups = new GroupWriter(out, 0, " ", "\n", 16);
+        char[] text = "ABCDEFGHIJ".toCharArray();
+        groups.write(text, 0, 10);
+        groups.write(text, 0, 10);
+        groups.endLine();
+        groups.flush();
+        assertEquals("ABCDEFGHIJABCDEFGHIJ\n", out.toString());
+    }
+}
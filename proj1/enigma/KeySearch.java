@@ -0,0 +1,551 @@
+package enigma;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+import ucb.util.CommandArgs;
+
+import static enigma.EnigmaException.*;
+
+/** A ciphertext-only key search.  The search first tries every order of
+ *  the available rotors at every starting position with no plugboard,
+ *  scoring each decryption by its index of coincidence, which is higher
+ *  the more the letter frequencies look like language rather than
+ *  noise.  It keeps the best few settings and then, for each, hill-climbs
+ *  over plugboards, repeatedly making whichever single change of pairing
+ *  most improves the score, first by index of coincidence and then, if
+ *  an n-gram table is given, by n-gram log-likelihood.
+ *
+ *  The first phase decrypts with the tables of a Scrambler, keeping the
+ *  mapping through everything but the fast rotor for each text position
+ *  and rebuilding it only when a slower rotor's position there changes,
+ *  and counts letters into an int array, so no candidate allocates
+ *  anything.  The plugboard climb tabulates the scrambler at every text
+ *  position once, so that each trial decryption takes three lookups per
+ *  character.  Each rotor order and leftmost rotor position is a
+ *  separate task, and each climb another, run on a fixed pool of
+ *  threads.
+ *  @author Arthur Utnehmer
+ */
+class KeySearch {
+
+    /** A candidate key, with its score and decryption. */
+    static final class Candidate {
+
+        /** A candidate with rotors named ROTORS (reflector first) at
+         *  POSITIONS (excluding the reflector) and plugboard PLUGBOARD in
+         *  cycle notation, which decrypts the ciphertext to PLAINTEXT
+         *  with score SCORE. */
+        Candidate(String[] rotors, String positions, String plugboard,
+                  double score, String plaintext) {
+            _rotors = rotors;
+            _positions = positions;
+            _plugboard = plugboard;
+            _score = score;
+            _plaintext = plaintext;
+        }
+
+        /** Return my starting positions, as for Machine.setRotors. */
+        String positions() {
+            return _positions;
+        }
+
+        /** Return my plugboard in cycle notation. */
+        String plugboard() {
+            return _plugboard;
+        }
+
+        /** Return my score: the n-gram log-likelihood of my decryption if
+         *  the search has an n-gram table, and otherwise its index of
+         *  coincidence.  Higher is better. */
+        double score() {
+            return _score;
+        }
+
+        /** Return my decryption of the ciphertext. */
+        String plaintext() {
+            return _plaintext;
+        }
+
+        /** Return my setting line, in the form Main accepts. */
+        String setting() {
+            return SearchSupport.setting(_rotors, _positions, _plugboard);
+        }
+
+        @Override
+        public String toString() {
+            return setting();
+        }
+
+        /** Rotor names, reflector first. */
+        private final String[] _rotors;
+
+        /** Starting positions. */
+        private final String _positions;
+
+        /** Plugboard. */
+        private final String _plugboard;
+
+        /** Score. */
+        private final double _score;
+
+        /** Decryption. */
+        private final String _plaintext;
+    }
+
+    /** A search over the available rotors of INVENTORY, with its numbers
+     *  of slots and pawls, scoring final candidates with NGRAMS (if not
+     *  null) and using THREADS threads. */
+    KeySearch(Machine inventory, NgramTable ngrams, int threads) {
+        if (threads < 1) {
+            throw error("need at least one thread");
+        }
+        _inventory = new RotorInventory(inventory);
+        _alphabet = inventory.alphabet();
+        _size = _alphabet.size();
+        _ngrams = ngrams;
+        _threads = threads;
+    }
+
+    /** Return the best candidate keys for CIPHERTEXT, best first: the
+     *  results of climbing from the KEEP starting settings with the
+     *  highest index of coincidence, with at most MAXPAIRS plugboard
+     *  pairs. */
+    List<Candidate> search(String ciphertext, int keep, int maxPairs) {
+        if (keep < 1) {
+            throw error("need to keep at least one starting setting");
+        }
+        if (maxPairs < 0) {
+            throw error("number of plugboard pairs must be non-negative");
+        }
+        int[] cipher = new int[ciphertext.length()];
+        for (int k = 0; k < cipher.length; k++) {
+            cipher[k] = _alphabet.toInt(ciphertext.charAt(k));
+            if (cipher[k] < 0) {
+                throw error("character %c is not in the alphabet",
+                            ciphertext.charAt(k));
+            }
+        }
+        ArrayList<Candidate> result = new ArrayList<Candidate>();
+        List<Rotor[]> orders = _inventory.orders();
+        if (orders.isEmpty() || cipher.length == 0) {
+            return result;
+        }
+        ExecutorService pool =
+            SearchSupport.pool(_threads, "enigma-keysearch");
+        try {
+            ArrayList<Callable<Scan>> scans = new ArrayList<Callable<Scan>>();
+            for (Rotor[] order : orders) {
+                Scrambler shared = new Scrambler(order, _size);
+                for (int p = 0; p < _size; p++) {
+                    final int leftmost = p;
+                    scans.add(() -> new Scan(shared, cipher, keep)
+                              .run(leftmost));
+                }
+            }
+            Scan best = null;
+            for (Scan scan : SearchSupport.invokeAll(pool, scans,
+                                                     "key search")) {
+                best = best == null ? scan : best.merge(scan);
+            }
+            ArrayList<Callable<Candidate>> climbs =
+                new ArrayList<Callable<Candidate>>();
+            for (int k = 0; k < best._count; k++) {
+                final Scrambler order = best._order[k];
+                final int[] start = best._start[k];
+                climbs.add(() -> climb(order, start, cipher, maxPairs));
+            }
+            result.addAll(SearchSupport.invokeAll(pool, climbs,
+                                                  "key search"));
+        } finally {
+            pool.shutdownNow();
+        }
+        result.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        return result;
+    }
+
+    /** Return the total number of rotor states scored by all searches so
+     *  far, not counting plugboard trials. */
+    long statesTested() {
+        return _tested.sum();
+    }
+
+    /** Return the total number of plugboards scored by all searches so
+     *  far. */
+    long plugboardsTested() {
+        return _plugboards.sum();
+    }
+
+    /** The best starting positions of one part of the first phase. */
+    private final class Scan {
+
+        /** A scan of rotor order ORDER on CIPHER keeping the KEEP
+         *  best-scoring starting positions. */
+        Scan(Scrambler order, int[] cipher, int keep) {
+            _cipher = cipher;
+            _score = new long[keep];
+            _order = new Scrambler[keep];
+            _start = new int[keep][];
+            _shared = order;
+        }
+
+        /** Score every starting position of my order with the leftmost
+         *  non-reflector rotor at LEFTMOST, and return this scan. */
+        Scan run(int leftmost) {
+            Scrambler order = _shared;
+            SteppingModel model = order.stepping();
+            int n = order.numRotors();
+            int len = _cipher.length;
+            int[][] middle = new int[len][_size];
+            long[] middleKey = new long[len];
+            Arrays.fill(middleKey, -1);
+            int[] counts = new int[_size];
+            int[] start = new int[n];
+            int[] p = new int[n];
+            start[1] = leftmost;
+            long tested = 0;
+            do {
+                System.arraycopy(start, 0, p, 0, n);
+                Arrays.fill(counts, 0);
+                for (int i = 0; i < len; i++) {
+                    model.step(p);
+                    long key = order.middleKey(p);
+                    if (key != middleKey[i]) {
+                        middleKey[i] = key;
+                        order.fillMiddle(middle[i], p);
+                    }
+                    counts[order.convert(middle[i], p[n - 1], _cipher[i])]
+                        += 1;
+                }
+                long score = 0;
+                for (int c : counts) {
+                    score += (long) c * (c - 1);
+                }
+                offer(score, order, start);
+                tested += 1;
+            } while (order.nextStart(start));
+            _tested.add(tested);
+            return this;
+        }
+
+        /** Keep START, positions of ORDER with score SCORE, if it is
+         *  among the best so far. */
+        private void offer(long score, Scrambler order, int[] start) {
+            int slot;
+            if (_count < _score.length) {
+                slot = _count;
+                _count += 1;
+            } else {
+                slot = 0;
+                for (int k = 1; k < _count; k++) {
+                    if (_score[k] < _score[slot]) {
+                        slot = k;
+                    }
+                }
+                if (_score[slot] >= score) {
+                    return;
+                }
+            }
+            _score[slot] = score;
+            _order[slot] = order;
+            _start[slot] = start.clone();
+        }
+
+        /** Return a scan holding the best positions of this one and
+         *  OTHER. */
+        Scan merge(Scan other) {
+            for (int k = 0; k < other._count; k++) {
+                offer(other._score[k], other._order[k], other._start[k]);
+            }
+            return this;
+        }
+
+        /** Ciphertext, as indices. */
+        private final int[] _cipher;
+
+        /** Order scanned by run. */
+        private final Scrambler _shared;
+
+        /** The _count best positions kept: _start[k] of _order[k], with
+         *  score _score[k] (the sum over letters of n(n-1), where n is
+         *  the letter's count, proportional to the index of
+         *  coincidence). */
+        private final long[] _score;
+
+        /** Orders of the kept positions. */
+        private final Scrambler[] _order;
+
+        /** Kept positions. */
+        private final int[][] _start;
+
+        /** Number of positions kept. */
+        private int _count;
+    }
+
+    /** Return the candidate found by climbing over plugboards with at
+     *  most MAXPAIRS pairs for CIPHER decrypted by ORDER from START. */
+    private Candidate climb(Scrambler order, int[] start, int[] cipher,
+                            int maxPairs) {
+        int len = cipher.length;
+        int[][] tables = new int[len][_size];
+        int[] middle = new int[_size];
+        int[] p = start.clone();
+        long lastKey = -1;
+        for (int i = 0; i < len; i++) {
+            order.stepping().step(p);
+            long key = order.middleKey(p);
+            if (key != lastKey) {
+                lastKey = key;
+                order.fillMiddle(middle, p);
+            }
+            order.fillTable(tables[i], middle, p);
+        }
+        int[] plug = new int[_size];
+        for (int c = 0; c < _size; c++) {
+            plug[c] = c;
+        }
+        int[] text = new int[len];
+        Climb climb = new Climb(tables, cipher, text, maxPairs);
+        double score = climb.run(plug, false);
+        if (_ngrams != null) {
+            score = climb.run(plug, true);
+        }
+        climb.decrypt(plug);
+        char[] plaintext = new char[len];
+        for (int i = 0; i < len; i++) {
+            plaintext[i] = _alphabet.toChar(text[i]);
+        }
+        return new Candidate(order.names(),
+                             SearchSupport.positions(_alphabet, start),
+                             SearchSupport.plugboard(_alphabet, plug), score,
+                             new String(plaintext));
+    }
+
+    /** A hill climb over plugboards for one rotor setting. */
+    private final class Climb {
+
+        /** A climb decrypting CIPHER into TEXT, where TABLES[i] is the
+         *  scrambler at text position I, with at most MAXPAIRS pairs. */
+        Climb(int[][] tables, int[] cipher, int[] text, int maxPairs) {
+            _tables = tables;
+            _cipher = cipher;
+            _text = text;
+            _maxPairs = maxPairs;
+            _trial = new int[_size];
+            _counts = new int[_size];
+        }
+
+        /** Improve PLUG, a plugboard given as an involution on indices,
+         *  until no single change of pairing improves its score, scoring
+         *  by n-gram log-likelihood if NGRAMS, and otherwise by index of
+         *  coincidence.  Return the final score. */
+        double run(int[] plug, boolean ngrams) {
+            double best = score(plug, ngrams);
+            boolean improved = true;
+            long trials = 0;
+            while (improved) {
+                improved = false;
+                int bestA = -1, bestB = -1;
+                double bestTrial = best;
+                for (int a = 0; a < _size; a++) {
+                    for (int b = a + 1; b < _size; b++) {
+                        if (!change(plug, a, b)) {
+                            continue;
+                        }
+                        trials += 1;
+                        double s = score(_trial, ngrams);
+                        if (s > bestTrial) {
+                            bestTrial = s;
+                            bestA = a;
+                            bestB = b;
+                        }
+                    }
+                }
+                if (bestA >= 0) {
+                    change(plug, bestA, bestB);
+                    System.arraycopy(_trial, 0, plug, 0, _size);
+                    best = bestTrial;
+                    improved = true;
+                }
+            }
+            _plugboards.add(trials);
+            return best;
+        }
+
+        /** Set _trial to PLUG changed at A and B: if A and B are paired,
+         *  unpaired, and otherwise paired, with their old partners left
+         *  unpaired.  Returns false if that would need too many pairs. */
+        private boolean change(int[] plug, int a, int b) {
+            System.arraycopy(plug, 0, _trial, 0, _size);
+            if (_trial[a] == b) {
+                _trial[a] = a;
+                _trial[b] = b;
+                return true;
+            }
+            _trial[_trial[a]] = _trial[a];
+            _trial[_trial[b]] = _trial[b];
+            _trial[a] = b;
+            _trial[b] = a;
+            int pairs = 0;
+            for (int c = 0; c < _size; c++) {
+                if (_trial[c] > c) {
+                    pairs += 1;
+                }
+            }
+            return pairs <= _maxPairs;
+        }
+
+        /** Decrypt the ciphertext with plugboard PLUG into _text. */
+        void decrypt(int[] plug) {
+            for (int i = 0; i < _cipher.length; i++) {
+                _text[i] = plug[_tables[i][plug[_cipher[i]]]];
+            }
+        }
+
+        /** Return the score of the decryption with PLUG, by n-gram
+         *  log-likelihood if NGRAMS and otherwise by index of
+         *  coincidence. */
+        private double score(int[] plug, boolean ngrams) {
+            decrypt(plug);
+            if (ngrams) {
+                return _ngrams.score(_text, _text.length);
+            }
+            Arrays.fill(_counts, 0);
+            for (int c : _text) {
+                _counts[c] += 1;
+            }
+            long sum = 0;
+            for (int c : _counts) {
+                sum += (long) c * (c - 1);
+            }
+            long len = _text.length;
+            return len < 2 ? 0 : (double) sum / (len * (len - 1));
+        }
+
+        /** Scramblers at each text position. */
+        private final int[][] _tables;
+
+        /** Ciphertext and its trial decryption, as indices. */
+        private final int[] _cipher, _text;
+
+        /** Most plugboard pairs allowed. */
+        private final int _maxPairs;
+
+        /** Plugboard being tried. */
+        private final int[] _trial;
+
+        /** Letter counts of _text. */
+        private final int[] _counts;
+    }
+
+    /** Search for the key of a ciphertext, as specified by ARGS: CONFIG
+     *  CIPHERTEXT, preceded by options --threads=N (threads to use;
+     *  default the number of processors), --ngrams=FILE (n-gram counts
+     *  for the final scoring; see NgramTable), --keep=N (settings kept
+     *  for plugboard climbing; default 20), and --pairs=N (most
+     *  plugboard pairs; default 10).  Whitespace in CIPHERTEXT is
+     *  ignored.  Prints the score, setting line, and decryption of the
+     *  best candidates, best first, and the search rate on the standard
+     *  error. */
+    public static void main(String... args) {
+        try {
+            CommandArgs options =
+                new CommandArgs("--threads=([1-9]\\d*) --ngrams=(.+) "
+                                + "--keep=([1-9]\\d*) --pairs=(\\d+) "
+                                + "--=(.*){2}", args);
+            if (!options.ok()) {
+                throw error("Usage: java enigma.KeySearch [--threads=N]"
+                            + " [--ngrams=FILE] [--keep=N] [--pairs=N]"
+                            + " CONFIG CIPHERTEXT");
+            }
+            int threads = Runtime.getRuntime().availableProcessors();
+            if (options.contains("--threads")) {
+                threads = Main.intOption(options, "--threads",
+                                          Main.MAX_THREADS);
+            }
+            int keep = DEFAULT_KEEP;
+            if (options.contains("--keep")) {
+                keep = Main.intOption(options, "--keep",
+                                      Integer.MAX_VALUE);
+            }
+            int pairs = DEFAULT_PAIRS;
+            if (options.contains("--pairs")) {
+                pairs = Main.intOption(options, "--pairs",
+                                       Integer.MAX_VALUE);
+            }
+            List<String> files = options.get("--");
+            Machine inventory = SearchSupport.readConfig(files.get(0));
+            NgramTable ngrams = null;
+            if (options.contains("--ngrams")) {
+                String name = options.getFirst("--ngrams");
+                try (Reader table =
+                         new InputStreamReader(new FileInputStream(name))) {
+                    ngrams = new NgramTable(inventory.alphabet(), table);
+                } catch (IOException excp) {
+                    throw error("could not read %s", name);
+                }
+            }
+            KeySearch search = new KeySearch(inventory, ngrams, threads);
+            long start = System.nanoTime();
+            List<Candidate> best =
+                search.search(files.get(1).replaceAll("\\s+", ""), keep,
+                              pairs);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            for (int k = 0; k < Math.min(best.size(), SHOWN); k++) {
+                Candidate candidate = best.get(k);
+                System.out.printf("%.4f %s%n%s%n", candidate.score(),
+                                  candidate.setting(),
+                                  candidate.plaintext());
+            }
+            System.err.printf("%d states, %d plugboards in %.3f s"
+                              + " (%.0f states/s)%n",
+                              search.statesTested(),
+                              search.plugboardsTested(), seconds,
+                              search.statesTested() / seconds);
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Default number of settings kept for plugboard climbing. */
+    private static final int DEFAULT_KEEP = 20;
+
+    /** Default most plugboard pairs. */
+    private static final int DEFAULT_PAIRS = 10;
+
+    /** Number of candidates printed by main. */
+    private static final int SHOWN = 5;
+
+    /** The available rotors. */
+    private final RotorInventory _inventory;
+
+    /** Common alphabet of the rotors. */
+    private final Alphabet _alphabet;
+
+    /** Size of _alphabet. */
+    private final int _size;
+
+    /** N-gram table for final scoring, or null. */
+    private final NgramTable _ngrams;
+
+    /** Number of search threads. */
+    private final int _threads;
+
+    /** Number of rotor states scored. */
+    private final LongAdder _tested = new LongAdder();
+
+    /** Number of plugboards scored. */
+    private final LongAdder _plugboards = new LongAdder();
+
+}
@@ -0,0 +1,111 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the KeySearch and NgramTable
+ *  classes.
+ *  @author Arthur Utnehmer
+ */
+public class KeySearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    private static final String[] ROTORS = { "B", "II", "III" };
+
+    private static final String PLAIN =
+        ("ON THE SHORES OF GITCHE GUMEE BY THE SHINING BIG SEA WATER "
+         + "STOOD THE WIGWAM OF NOKOMIS DAUGHTER OF THE MOON NOKOMIS "
+         + "DARK BEHIND IT ROSE THE FOREST ROSE THE BLACK AND GLOOMY "
+         + "PINE TREES ROSE THE FIRS WITH CONES UPON THEM BRIGHT "
+         + "BEFORE IT BEAT THE WATER BEAT THE CLEAR AND SUNNY WATER "
+         + "BEAT THE SHINING BIG SEA WATER THERE THE WRINKLED OLD "
+         + "NOKOMIS NURSED THE LITTLE HIAWATHA ROCKED HIM IN HIS "
+         + "LINDEN CRADLE BEDDED SOFT IN MOSS AND RUSHES SAFELY "
+         + "BOUND WITH REINDEER SINEWS").replace(" ", "");
+
+    private static Machine inventory() {
+        return TestUtils.searchInventory(ROTORS);
+    }
+
+    private static String encode(String positions, String plugboard,
+                                 String msg) {
+        return TestUtils.searchEncode(ROTORS, positions, plugboard, msg);
+    }
+
+    /** Return a table of the trigrams of PLAIN. */
+    private static NgramTable trigrams() throws IOException {
+        TreeMap<String, Integer> counts = new TreeMap<String, Integer>();
+        for (int k = 0; k + 3 <= PLAIN.length(); k++) {
+            counts.merge(PLAIN.substring(k, k + 3), 1, Integer::sum);
+        }
+        StringBuilder table = new StringBuilder();
+        counts.forEach((gram, n) ->
+                       table.append(gram).append(' ').append(n).append('\n'));
+        return new NgramTable(inventory().alphabet(),
+                              new StringReader(table.toString()));
+    }
+
+    @Test
+    public void scoresNgrams() throws IOException {
+        NgramTable table = trigrams();
+        assertEquals(3, table.n());
+        Alphabet alpha = inventory().alphabet();
+        int[] plain = new int[PLAIN.length()];
+        int[] reversed = new int[PLAIN.length()];
+        for (int k = 0; k < plain.length; k++) {
+            plain[k] = alpha.toInt(PLAIN.charAt(k));
+            reversed[plain.length - 1 - k] = plain[k];
+        }
+        assertEquals(0.0, table.score(plain, 2), 0.0);
+        assertTrue(table.score(plain, plain.length)
+                   > table.score(reversed, reversed.length));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void rejectsMixedNgramLengths() throws IOException {
+        new NgramTable(inventory().alphabet(),
+                       new StringReader("THE 10\nTH 5\n"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void rejectsKeepingNothing() {
+        new KeySearch(inventory(), null, 1).search(PLAIN, 0, 0);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void rejectsNegativePairs() {
+        new KeySearch(inventory(), null, 1).search(PLAIN, 1, -1);
+    }
+
+    @Test
+    public void findsRotorsWithoutNgrams() {
+        String cipher = encode("KD", "", PLAIN);
+        KeySearch search = new KeySearch(inventory(), null, 2);
+        List<KeySearch.Candidate> best = search.search(cipher, 5, 0);
+        assertEquals(6 * 26 * 26, search.statesTested());
+        assertEquals("* B II III KD", best.get(0).setting());
+        assertEquals(PLAIN, best.get(0).plaintext());
+    }
+
+    @Test
+    public void findsPlugboardWithNgrams() throws IOException {
+        String cipher = encode("WT", "(AQ) (OZ)", PLAIN);
+        KeySearch search = new KeySearch(inventory(), trigrams(), 2);
+        List<KeySearch.Candidate> best = search.search(cipher, 5, 2);
+        assertEquals("* B II III WT (AQ) (OZ)", best.get(0).setting());
+        assertEquals(PLAIN, best.get(0).plaintext());
+    }
+
+}
@@ -0,0 +1,43 @@
+package enigma;
+
+/** A MachineTracer that renders each conversion as one line in the
+ *  format of the --verbose option, e.g. "[AXLF] Y -> F -> ... -> Z",
+ *  and hands the line to a subclass.  The line buffer is reused, so
+ *  tracing allocates nothing per character once it has warmed up.
+ *  @author Arthur Utnehmer
+ */
+abstract class LineTracer implements MachineTracer {
+
+    @Override
+    public void begin(Machine m, int c) {
+        _alphabet = m.alphabet();
+        _line.setLength(0);
+        _line.append('[');
+        for (int r = 1; r < m.numRotors(); r += 1) {
+            _line.append(_alphabet.toChar(m.getRotor(r).setting()));
+        }
+        _line.append("] ").append(_alphabet.toChar(c));
+    }
+
+    @Override
+    public void step(int c) {
+        _line.append(" -> ").append(_alphabet.toChar(c));
+    }
+
+    @Override
+    public void end(int c) {
+        step(c);
+        emit(_line);
+    }
+
+    /** Receive LINE, the complete trace of one conversion, without a line
+     *  terminator.  LINE is overwritten by the next conversion. */
+    abstract void emit(CharSequence line);
+
+    /** The trace of the conversion in progress. */
+    private final StringBuilder _line = new StringBuilder();
+
+    /** Alphabet of the machine being traced. */
+    private Alphabet _alphabet;
+
+}
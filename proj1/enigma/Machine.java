@@ -1,11 +1,18 @@
 package enigma;
 
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.ListIterator;
 
+import static enigma.EnigmaException.*;
 
-/** Class that represents a complete enigma machine.
+
+/** Class that represents a complete enigma machine.  While converting,
+ *  the machine keeps the positions of its inserted rotors packed into a
+ *  single long whenever they fit (see SteppingModel), steps them by
+ *  arithmetic on that value, and stores them back into the Rotor objects
+ *  only when the conversion call returns.
  *  @author Arthur Utnehmer on 3/2/2022
  */
 class Machine {
@@ -28,6 +35,33 @@ class Machine {
         }
     }
 
+    /** Return a new machine with my alphabet, slots, pawls, plugboard, and
+     *  inserted rotors at their current positions, but with its own copy
+     *  of every rotor, so that it can be used on another thread
+     *  independently of me.  Compiled rotor tables are shared, and the
+     *  copy gets an empty state cache of the same capacity as mine.  It
+     *  has no tracer. */
+    Machine copy() {
+        ArrayList<Rotor> available = new ArrayList<Rotor>();
+        ArrayList<Rotor> inserted = new ArrayList<Rotor>();
+        for (Rotor rotor : _rotorList) {
+            available.add(rotor.copy());
+        }
+        for (Rotor rotor : _rotorListSetup) {
+            int k = _rotorList.indexOf(rotor);
+            inserted.add(k >= 0 ? available.get(k) : rotor.copy());
+        }
+        Machine result = new Machine(_alphabet, _numberOfRotors,
+                _NumberOfPawls, available);
+        result._rotorListSetup = inserted;
+        result._keyPositions = _keyPositions;
+        result._plugboard = _plugboard;
+        if (_stateCache != null) {
+            result.setStateCache(_stateCache.capacity());
+        }
+        return result;
+    }
+
     /** Return the number of rotor slots I have. */
     int numRotors() {
         return _numberOfRotors;
@@ -63,6 +97,11 @@ class Machine {
             }
         }
         _rotorListSetup = orderedRotarList;
+        _stepping = null;
+        _slots = null;
+        _prepared = false;
+        _keyPositions = positions();
+        resetStateCache();
     }
 
     /** Set my rotors according to SETTING, which must be a string of
@@ -72,6 +111,146 @@ class Machine {
         for (int x = 1; x < numRotors(); x++) {
             _rotorListSetup.get(x).set(_alphabet.toInt(setting.charAt(x - 1)));
         }
+        _keyPositions = positions();
+    }
+
+    /** Move my rotors to the positions they would reach after N more
+     *  characters were converted, without converting them.  For the
+     *  usual notch layouts (no rotor with two adjacent notches) this
+     *  takes time independent of N; otherwise it is bounded by the
+     *  period of the rotor positions. */
+    void advance(long n) {
+        if (n < 0) {
+            throw error("cannot advance by a negative amount");
+        }
+        int[] positions = positions();
+        stepping().advance(positions, n);
+        setPositions(positions);
+    }
+
+    /** Move my rotors to the positions they reach OFFSET characters into
+     *  a message begun at the positions last established by setRotors
+     *  (or insertRotors).  Converting from there continues that message
+     *  at character OFFSET. */
+    void seek(long offset) {
+        if (offset < 0) {
+            throw error("cannot seek to a negative offset");
+        }
+        int[] positions = _keyPositions.clone();
+        stepping().advance(positions, offset);
+        setPositions(positions);
+    }
+
+    /** Return the periodic behavior of my rotor positions from their
+     *  current values, which are left unchanged.  Takes time
+     *  proportional to the tail plus the period of the positions. */
+    CycleReport cycle() {
+        SteppingModel model = stepping();
+        int[] positions = positions();
+        long[] shape = model.cycle(positions);
+        model.advance(positions, shape[0]);
+        long[] moves = model.moves(positions, shape[1]);
+        String[] names = new String[_rotorListSetup.size()];
+        for (int x = 0; x < names.length; x++) {
+            names[x] = _rotorListSetup.get(x).name();
+        }
+        return new CycleReport(names, shape[0], shape[1], moves);
+    }
+
+    /** Return the stepping model of my inserted rotors. */
+    SteppingModel stepping() {
+        if (_stepping == null) {
+            _stepping = new SteppingModel(_rotorListSetup, _alphabet.size());
+        }
+        return _stepping;
+    }
+
+    /** Return the positions of my inserted rotors packed into a single
+     *  long, as described in SteppingModel.  Two machines with the same
+     *  rotors inserted are at the same positions iff their states are
+     *  equal.  It is an error if the positions do not fit. */
+    long state() {
+        SteppingModel model = stepping();
+        if (!model.packable()) {
+            throw error("rotor positions do not fit in a long");
+        }
+        long result = 0;
+        for (int x = 0; x < _rotorListSetup.size(); x++) {
+            result |= (long) _rotorListSetup.get(x).setting()
+                << model.shift(x);
+        }
+        return result;
+    }
+
+    /** Move my inserted rotors to the positions packed in STATE, a value
+     *  returned by state() with the same rotors inserted. */
+    void setState(long state) {
+        SteppingModel model = stepping();
+        if (!model.packable()) {
+            throw error("rotor positions do not fit in a long");
+        }
+        for (int x = 0; x < _rotorListSetup.size(); x++) {
+            _rotorListSetup.get(x).setSetting(model.position(state, x));
+        }
+    }
+
+    /** Return my inserted rotors, reflector first. */
+    private Rotor[] slots() {
+        if (_slots == null) {
+            _slots = _rotorListSetup.toArray(new Rotor[0]);
+        }
+        return _slots;
+    }
+
+    /** Return an immutable spec of my current configuration, starting
+     *  at my current rotor positions, for converting on any number of
+     *  threads through MachineState cursors. */
+    MachineSpec spec() {
+        return new MachineSpec(this);
+    }
+
+    /** Return a snapshot of my current rotor positions, as a cursor over
+     *  SPEC, which must be a spec of my current configuration. */
+    MachineState snapshot(MachineSpec spec) {
+        return new MachineState(spec, positions());
+    }
+
+    /** Move my rotors to the positions of SNAPSHOT, which must have been
+     *  taken with my current rotors inserted. */
+    void restore(MachineState snapshot) {
+        if (snapshot.spec().numRotors() != _rotorListSetup.size()) {
+            throw error("snapshot is of a different machine");
+        }
+        setPositions(snapshot.positions());
+    }
+
+    /** Return the settings of my inserted rotors, reflector first. */
+    int[] positions() {
+        int[] result = new int[_rotorListSetup.size()];
+        for (int x = 0; x < result.length; x++) {
+            result[x] = _rotorListSetup.get(x).setting();
+        }
+        return result;
+    }
+
+    /** Set my inserted rotors to POSITIONS, reflector first. */
+    void setPositions(int[] positions) {
+        for (int x = 0; x < positions.length; x++) {
+            _rotorListSetup.get(x).setSetting(positions[x]);
+        }
+    }
+
+    /** Switch all my available rotors to compiled mode: each precomputes
+     *  its mapping at every setting, up to alphabets of MAXSIZE
+     *  characters.  Rotors over larger alphabets keep the arithmetic
+     *  path. */
+    void compileRotors(int maxSize) {
+        for (Rotor rotor : _rotorList) {
+            rotor.compile(maxSize);
+        }
+        for (Rotor rotor : _rotorListSetup) {
+            rotor.compile(maxSize);
+        }
     }
 
     /** Return the current plugboard's permutation. */
@@ -82,30 +261,257 @@ class Machine {
     /** Set the plugboard to PLUGBOARD. */
     void setPlugboard(Permutation plugboard) {
         _plugboard = plugboard;
+        _prepared = false;
+        resetStateCache();
+    }
+
+    /** Prepare the untraced conversion path for my current plugboard
+     *  and rotors (see foldPlugboard and composeHalf). */
+    private void prepare() {
+        _prepared = true;
+        foldPlugboard();
+        int numRotors = slots().length;
+        _halfFrom = numRotors >= HALF_MIN_ROTORS ? numRotors - 2 : 0;
+        _half = _halfFrom > 0 ? new int[_alphabet.size()] : null;
+        _halfKey = -1;
+    }
+
+    /** Set _half to the composite of the "slow" rotors #0 (the
+     *  reflector) through #_halfFrom-1 at their positions in STATE
+     *  according to MODEL: forward through them to the reflector and
+     *  back out again.  The per-character path then converts only
+     *  through the two rightmost rotors and this one table.  The slow
+     *  rotors' positions occupy the high bits of a packed state, so
+     *  they are unchanged as long as KEY, STATE shifted right to the
+     *  lowest of their fields, is, and the table is recomposed only when
+     *  KEY changes: for the usual layouts, once every size() squared
+     *  characters. */
+    private void composeHalf(SteppingModel model, long state, long key) {
+        Rotor[] slots = slots();
+        int[] half = _half;
+        for (int c = 0; c < half.length; c++) {
+            int d = c;
+            for (int x = _halfFrom - 1; x >= 0; x--) {
+                d = slots[x].convertForward(d, model.position(state, x));
+            }
+            for (int x = 1; x < _halfFrom; x++) {
+                d = slots[x].convertBackward(d, model.position(state, x));
+            }
+            half[c] = d;
+        }
+        _halfKey = key;
+    }
+
+    /** Prepare the plugboard for the untraced conversion path.  An
+     *  identity plugboard (including none at all) is simply skipped.
+     *  Any other is folded into the fast rotor: _plugIn[s][c] is the
+     *  plugboard followed by the fast rotor's forward conversion at
+     *  setting S, and _plugOut[s][c] its backward conversion followed by
+     *  the plugboard, so that the plugboard costs nothing per
+     *  character.  As elsewhere, the plugboard is applied forward on the
+     *  way out as well as in, which is its inverse when it is an
+     *  involution, as real plugboards are.  Plugboards over alphabets
+     *  larger than DEFAULT_COMPILED_SIZE are not folded. */
+    private void foldPlugboard() {
+        _plugIn = _plugOut = null;
+        _plugIdentity = _plugboard == null || _plugboard.identity();
+        Rotor[] slots = slots();
+        int size = _alphabet.size();
+        if (_plugIdentity || slots.length < 2
+            || size > DEFAULT_COMPILED_SIZE) {
+            return;
+        }
+        Rotor fast = slots[slots.length - 1];
+        int[] plug = _plugboard.forwardTable();
+        int[][] in = new int[size][size];
+        int[][] out = new int[size][size];
+        for (int s = 0; s < size; s++) {
+            for (int c = 0; c < size; c++) {
+                in[s][c] = fast.convertForward(plug[c], s);
+                out[s][c] = plug[fast.convertBackward(c, s)];
+            }
+        }
+        _plugIn = in;
+        _plugOut = out;
+    }
+
+    /** Memoize the composite plugboard-rotors-reflector-rotors-plugboard
+     *  mapping for up to MAXSTATES distinct rotor positions, evicting the
+     *  least recently used.  Between notch events only the fast rotor
+     *  moves, so workloads that revisit the same positions then pay one
+     *  array lookup per character.  A MAXSTATES of 0 turns the cache
+     *  off. The cache is also unused if the rotor positions cannot be
+     *  packed into a long. */
+    void setStateCache(int maxStates) {
+        if (maxStates <= 0) {
+            _stateCache = null;
+        } else {
+            _stateCache = new StateCache(maxStates);
+        }
+        resetStateCache();
+    }
+
+    /** Return my state cache, or null if it is off. */
+    StateCache stateCache() {
+        return _stateCache;
+    }
+
+    /** Discard all memoized composite tables and recheck whether my
+     *  current rotors' positions fit a packed long key. */
+    private void resetStateCache() {
+        if (_stateCache == null) {
+            _useStateCache = false;
+            return;
+        }
+        _stateCache.clear();
+        double states = Math.pow(_alphabet.size(),
+                _rotorListSetup.size() - 1);
+        _useStateCache = _rotorListSetup.size() == numRotors()
+                && states < Long.MAX_VALUE;
+    }
+
+    /** Return the positions of rotors 1..numRotors()-1 packed as a
+     *  mixed-radix number. */
+    private long stateKey() {
+        long key = 0;
+        long radix = _alphabet.size();
+        for (int x = 1; x < _rotorListSetup.size(); x++) {
+            key = key * radix + _rotorListSetup.get(x).setting();
+        }
+        return key;
+    }
+
+    /** Return the composite mapping of every character through the
+     *  plugboard and rotors at their current positions. */
+    private int[] composeTable() {
+        int[] table = new int[_alphabet.size()];
+        for (int c = 0; c < table.length; c++) {
+            int p = plugboard().permute(c);
+            table[c] = plugboard().permute(applyRotors(p));
+        }
+        return table;
+    }
+
+    /** Report each stage of every subsequent conversion to TRACER.  A
+     *  null TRACER or MachineTracer.NONE turns tracing off. */
+    void setTracer(MachineTracer tracer) {
+        if (tracer == MachineTracer.NONE) {
+            tracer = null;
+        }
+        _tracer = tracer;
+    }
+
+    /** Return my tracer, or null if I am not tracing. */
+    MachineTracer tracer() {
+        return _tracer;
     }
 
     /** Returns the result of converting the input character C (as an
      *  index in the range 0..alphabet size - 1), after first advancing
      *  the machine. */
     int convert(int c) {
+        if (_tracer != null) {
+            return convertTraced(c);
+        }
+        return encode(c);
+    }
+
+    /** Return the untraced conversion of C, after first advancing the
+     *  machine. */
+    private int encode(int c) {
+        SteppingModel model = stepping();
+        if (model.packable()) {
+            long state = model.step(state());
+            setState(state);
+            return encode(model, state, c);
+        }
         advanceRotors();
-        if (Main.verbose()) {
-            System.err.printf("[");
-            for (int r = 1; r < numRotors(); r += 1) {
-                System.err.printf("%c",
-                        alphabet().toChar(getRotor(r).setting()));
+        if (_useStateCache) {
+            long key = stateKey();
+            int[] table = _stateCache.get(key);
+            if (table == null) {
+                table = composeTable();
+                _stateCache.put(key, table);
             }
-            System.err.printf("] %c -> ", alphabet().toChar(c));
+            return table[c];
         }
         c = plugboard().permute(c);
-        if (Main.verbose()) {
-            System.err.printf("%c -> ", alphabet().toChar(c));
-        }
         c = applyRotors(c);
+        return plugboard().permute(c);
+    }
+
+    /** Return the conversion of C with my rotors at the positions packed
+     *  in STATE according to MODEL, my stepping model.  The rotors
+     *  themselves need not be at those positions, and are moved there
+     *  only to fill a state cache miss. */
+    private int encode(SteppingModel model, long state, int c) {
+        if (_useStateCache) {
+            int[] table = _stateCache.get(state);
+            if (table == null) {
+                setState(state);
+                table = composeTable();
+                _stateCache.put(state, table);
+            }
+            return table[c];
+        }
+        if (!_prepared) {
+            prepare();
+        }
+        Rotor[] slots = slots();
+        int fast = slots.length - 1;
+        int p = model.position(state, fast);
+        if (_plugIn != null) {
+            c = _plugIn[p][c];
+        } else {
+            if (!_plugIdentity) {
+                c = _plugboard.permute(c);
+            }
+            c = slots[fast].convertForward(c, p);
+            if (fast == 0) {
+                return _plugIdentity ? c : _plugboard.permute(c);
+            }
+        }
+        int low = 0;
+        if (_half != null) {
+            low = _halfFrom;
+            long key = state >>> model.shift(low - 1);
+            if (key != _halfKey) {
+                composeHalf(model, state, key);
+            }
+        }
+        for (int x = fast - 1; x >= low; x--) {
+            c = slots[x].convertForward(c, model.position(state, x));
+        }
+        if (low > 0) {
+            c = _half[c];
+        }
+        for (int x = Math.max(low, 1); x < fast; x++) {
+            c = slots[x].convertBackward(c, model.position(state, x));
+        }
+        if (_plugOut != null) {
+            return _plugOut[p][c];
+        }
+        c = slots[fast].convertBackward(c, p);
+        return _plugIdentity ? c : _plugboard.permute(c);
+    }
+
+    /** Return the conversion of C, after first advancing the machine,
+     *  reporting each stage to my tracer. */
+    private int convertTraced(int c) {
+        advanceRotors();
+        _tracer.begin(this, c);
         c = plugboard().permute(c);
-        if (Main.verbose()) {
-            System.err.printf("%c%n", alphabet().toChar(c));
+        _tracer.step(c);
+        for (int x = _rotorListSetup.size() - 1; x >= 0; x--) {
+            c = _rotorListSetup.get(x).convertForward(c);
+            _tracer.step(c);
+        }
+        for (int x = 1; x < _rotorListSetup.size(); x++) {
+            c = _rotorListSetup.get(x).convertBackward(c);
+            _tracer.step(c);
         }
+        c = plugboard().permute(c);
+        _tracer.end(c);
         return c;
     }
 
@@ -136,12 +542,12 @@ class Machine {
 
     /** Return the Rotor positions from left to right. */
     public String getRotorPositions() {
-        String listOfPositions = "";
+        StringBuilder listOfPositions = new StringBuilder();
         for (Rotor element: _rotorListSetup) {
-            listOfPositions = listOfPositions
-                    + element.alphabet().toChar(element.setting());
+            listOfPositions.append(
+                    element.alphabet().toChar(element.setting()));
         }
-        return listOfPositions;
+        return listOfPositions.toString();
     }
 
     /** Return the Rotor positions from left to right. */
@@ -177,12 +583,139 @@ class Machine {
     /** Returns the encoding/decoding of MSG, updating the state of
      *  the rotors accordingly. */
     String convert(String msg) {
-        String convertedMessage  = "";
-        for (int x = 0; x < msg.length(); x++) {
-            convertedMessage = convertedMessage
-                    + _alphabet.toChar(convert(_alphabet.toInt(msg.charAt(x))));
+        char[] buffer = msg.toCharArray();
+        convert(buffer, 0, buffer.length, buffer, 0);
+        return new String(buffer);
+    }
+
+    /** Encode or decode the LEN characters of SRC starting at SRCOFF,
+     *  writing the results to DST starting at DSTOFF and updating the
+     *  state of the rotors accordingly.  SRC and DST may be the same
+     *  array (in-place conversion), and nothing is allocated per
+     *  character.  Returns LEN. */
+    int convert(char[] src, int srcOff, int len, char[] dst, int dstOff) {
+        SteppingModel model = stepping();
+        if (_tracer != null || !model.packable()) {
+            for (int x = 0; x < len; x++) {
+                dst[dstOff + x] =
+                    _alphabet.toChar(convert(index(src[srcOff + x])));
+            }
+            return len;
+        }
+        int[] text = indices();
+        for (int x = 0; x < len; x += text.length) {
+            int n = Math.min(text.length, len - x);
+            int known = 0;
+            while (known < n) {
+                text[known] = _alphabet.toInt(src[srcOff + x + known]);
+                if (text[known] < 0) {
+                    break;
+                }
+                known += 1;
+            }
+            encodeIndices(model, text, known);
+            for (int k = 0; k < known; k++) {
+                dst[dstOff + x + k] = _alphabet.toChar(text[k]);
+            }
+            if (known < n) {
+                throw error("character %c is not in the alphabet",
+                            src[srcOff + x + known]);
+            }
+        }
+        return len;
+    }
+
+    /** Encode or decode the LEN bytes of SRC starting at SRCOFF, writing
+     *  the results to DST starting at DSTOFF, as convert(char[], ...)
+     *  does for characters.  My alphabet must be Alphabet.bytes(), so
+     *  that every byte is a symbol and its unsigned value is its index:
+     *  there is no decoding, and nothing is skipped.  Returns LEN. */
+    int convert(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+        if (!_alphabet.isBytes()) {
+            throw error("alphabet is not the byte values");
         }
-        return convertedMessage;
+        SteppingModel model = stepping();
+        if (_tracer != null || !model.packable()) {
+            for (int x = 0; x < len; x++) {
+                dst[dstOff + x] = (byte) convert(src[srcOff + x] & BYTE_MASK);
+            }
+            return len;
+        }
+        int[] text = indices();
+        for (int x = 0; x < len; x += text.length) {
+            int n = Math.min(text.length, len - x);
+            for (int k = 0; k < n; k++) {
+                text[k] = src[srcOff + x + k] & BYTE_MASK;
+            }
+            encodeIndices(model, text, n);
+            for (int k = 0; k < n; k++) {
+                dst[dstOff + x + k] = (byte) text[k];
+            }
+        }
+        return len;
+    }
+
+    /** Replace each of the first LEN alphabet indices of TEXT by its
+     *  conversion, advancing my rotors before each as MODEL, my
+     *  stepping model, which must be packable, describes.  Runs of
+     *  steps that move only the fast rotor (see SteppingModel.quietSteps)
+     *  just add one to the packed state. */
+    private void encodeIndices(SteppingModel model, int[] text, int len) {
+        long state = state();
+        try {
+            int x = 0;
+            while (x < len) {
+                int end = x + Math.min(model.quietSteps(state), len - x);
+                if (end == x) {
+                    state = model.step(state);
+                    text[x] = encode(model, state, text[x]);
+                    x += 1;
+                    continue;
+                }
+                for (; x < end; x++) {
+                    state += 1;
+                    text[x] = encode(model, state, text[x]);
+                }
+            }
+        } finally {
+            setState(state);
+        }
+    }
+
+    /** Return my scratch array of alphabet indices for the bulk
+     *  conversions, allocating it on first use. */
+    private int[] indices() {
+        if (_indices == null) {
+            _indices = new int[INDEX_CHUNK];
+        }
+        return _indices;
+    }
+
+    /** Return the index of CH in my alphabet, which must contain it. */
+    private int index(char ch) {
+        int c = _alphabet.toInt(ch);
+        if (c < 0) {
+            throw error("character %c is not in the alphabet", ch);
+        }
+        return c;
+    }
+
+    /** Encode or decode the remaining characters of SRC into DST,
+     *  advancing both buffers' positions.  Converts as many characters
+     *  as fit in DST; returns the number converted. */
+    int convert(CharBuffer src, CharBuffer dst) {
+        int len = Math.min(src.remaining(), dst.remaining());
+        if (src.hasArray() && dst.hasArray() && !dst.isReadOnly()) {
+            convert(src.array(), src.arrayOffset() + src.position(), len,
+                    dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.position() + len);
+            dst.position(dst.position() + len);
+            return len;
+        }
+        for (int x = 0; x < len; x++) {
+            dst.put(_alphabet.toChar(convert(index(src.get()))));
+        }
+        return len;
     }
 
     /** Returns the rotor list.*/
@@ -190,6 +723,21 @@ class Machine {
         return _rotorList;
     }
 
+    /** Largest alphabet for which compileRotors builds per-setting
+     *  tables by default (two 256x256 int tables per rotor). */
+    static final int DEFAULT_COMPILED_SIZE = 256;
+
+    /** Mask taking a byte as unsigned. */
+    private static final int BYTE_MASK = 0xff;
+
+    /** Number of characters the bulk conversions convert at a time. */
+    private static final int INDEX_CHUNK = 1 << 11;
+
+    /** Fewest inserted rotors for which the slow rotors are composed
+     *  into one table: with fewer, the composite covers the reflector
+     *  alone. */
+    private static final int HALF_MIN_ROTORS = 4;
+
     /** Common alphabet of my rotors. */
     private final Alphabet _alphabet;
 
@@ -205,4 +753,48 @@ class Machine {
     /** Permutation. */
     private Permutation _plugboard;
 
+    /** True iff the fields set by prepare describe the current
+     *  plugboard and rotors. */
+    private boolean _prepared;
+
+    /** True iff the plugboard maps every character to itself. */
+    private boolean _plugIdentity;
+
+    /** The plugboard folded into the fast rotor's forward and backward
+     *  conversions at each setting, or null if not folded. */
+    private int[][] _plugIn, _plugOut;
+
+    /** Number of slow rotors composed into _half, or 0 if none. */
+    private int _halfFrom;
+
+    /** Composite conversion through the slow rotors (see composeHalf),
+     *  or null if there are too few rotors for it to pay. */
+    private int[] _half;
+
+    /** Packed positions of the slow rotors for which _half was composed,
+     *  or -1 if it is not yet composed. */
+    private long _halfKey;
+
+    /** Scratch alphabet indices for the bulk conversions, or null if not
+     *  yet allocated. */
+    private int[] _indices;
+
+    /** Memoized composite tables by packed rotor state, or null. */
+    private StateCache _stateCache;
+
+    /** True iff convert should consult _stateCache. */
+    private boolean _useStateCache;
+
+    /** Receiver of conversion traces, or null if not tracing. */
+    private MachineTracer _tracer;
+
+    /** Stepping model of my inserted rotors, or null if not yet built. */
+    private SteppingModel _stepping;
+
+    /** My inserted rotors as an array, or null if not yet built. */
+    private Rotor[] _slots;
+
+    /** Rotor positions last established by insertRotors or setRotors. */
+    private int[] _keyPositions = new int[0];
+
 }
@@ -0,0 +1,110 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** An immutable description of a configured Enigma machine: its
+ *  alphabet, inserted rotors (with their compiled tables, if any),
+ *  plugboard, and the rotor positions at which messages start.  A spec
+ *  is never modified after construction, so one spec may be shared by
+ *  any number of threads, each converting through its own MachineState.
+ *  @author Arthur Utnehmer
+ */
+final class MachineSpec {
+
+    /** A spec of MACHINE as it is now configured: the rotors it has
+     *  inserted, its plugboard, and its current rotor positions as the
+     *  starting positions.  Later changes to MACHINE do not affect the
+     *  spec. */
+    MachineSpec(Machine machine) {
+        _alphabet = machine.alphabet();
+        int numRotors = machine.positions().length;
+        if (numRotors < 1) {
+            throw error("machine has no rotors inserted");
+        }
+        _rotors = new Rotor[numRotors];
+        for (int x = 0; x < numRotors; x++) {
+            _rotors[x] = machine.getRotor(x).copy();
+        }
+        Permutation plugboard = machine.plugboard();
+        _plugboard = plugboard != null ? plugboard
+            : new Permutation("", _alphabet);
+        _model = machine.stepping();
+        _start = machine.positions();
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of inserted rotors, counting the reflector. */
+    int numRotors() {
+        return _rotors.length;
+    }
+
+    /** Return a new cursor at my starting positions. */
+    MachineState start() {
+        return new MachineState(this, _start);
+    }
+
+    /** Return a copy of my starting rotor positions, reflector first. */
+    int[] startPositions() {
+        return _start.clone();
+    }
+
+    /** Return my rotor #K (the reflector being #0).  Only its
+     *  explicit-setting conversions may be used; it must not be moved. */
+    Rotor rotor(int k) {
+        return _rotors[k];
+    }
+
+    /** Return my plugboard. */
+    Permutation plugboard() {
+        return _plugboard;
+    }
+
+    /** Return the stepping model of my rotors. */
+    SteppingModel stepping() {
+        return _model;
+    }
+
+    /** Return the conversion of C (an index into my alphabet) with my
+     *  rotors at POSITIONS, without advancing them. */
+    int encode(int[] positions, int c) {
+        c = _plugboard.permute(c);
+        for (int x = _rotors.length - 1; x >= 0; x--) {
+            c = _rotors[x].convertForward(c, positions[x]);
+        }
+        for (int x = 1; x < _rotors.length; x++) {
+            c = _rotors[x].convertBackward(c, positions[x]);
+        }
+        return _plugboard.permute(c);
+    }
+
+    /** Return the index of CH in my alphabet, which must contain it. */
+    int index(char ch) {
+        int c = _alphabet.toInt(ch);
+        if (c < 0) {
+            throw error("character %c is not in the alphabet", ch);
+        }
+        return c;
+    }
+
+    /** Common alphabet of my rotors. */
+    private final Alphabet _alphabet;
+
+    /** Private copies of the inserted rotors, reflector first.  Only
+     *  their explicit-setting conversions are used, so their own
+     *  settings never change. */
+    private final Rotor[] _rotors;
+
+    /** The plugboard. */
+    private final Permutation _plugboard;
+
+    /** Stepping model of _rotors. */
+    private final SteppingModel _model;
+
+    /** Rotor positions at which messages start. */
+    private final int[] _start;
+
+}
@@ -0,0 +1,102 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** A cursor over a shared MachineSpec: the rotor positions of one
+ *  session, and nothing else.  Converting through a cursor advances only
+ *  the cursor.  A cursor must be used by one thread at a time, but any
+ *  number of cursors over the same spec may be used concurrently.
+ *  Snapshots (copy) and restores take time proportional to the number
+ *  of rotors.
+ *  @author Arthur Utnehmer
+ */
+final class MachineState {
+
+    /** A cursor over SPEC at rotor POSITIONS, reflector first. */
+    MachineState(MachineSpec spec, int[] positions) {
+        if (positions.length != spec.numRotors()) {
+            throw error("wrong number of rotor positions");
+        }
+        _spec = spec;
+        _positions = positions.clone();
+    }
+
+    /** Return my spec. */
+    MachineSpec spec() {
+        return _spec;
+    }
+
+    /** Return a snapshot of me: an independent cursor over the same spec
+     *  at my current positions. */
+    MachineState copy() {
+        return new MachineState(_spec, _positions);
+    }
+
+    /** Move to the positions of SNAPSHOT, a cursor over the same spec. */
+    void restore(MachineState snapshot) {
+        if (snapshot._spec != _spec) {
+            throw error("snapshot is of a different machine");
+        }
+        System.arraycopy(snapshot._positions, 0, _positions, 0,
+                         _positions.length);
+    }
+
+    /** Return a copy of my rotor positions, reflector first. */
+    int[] positions() {
+        return _positions.clone();
+    }
+
+    /** Move my rotors N key presses ahead without converting anything. */
+    void advance(long n) {
+        if (n < 0) {
+            throw error("cannot advance by a negative amount");
+        }
+        _spec.stepping().advance(_positions, n);
+    }
+
+    /** Move my rotors to the positions they reach OFFSET characters into
+     *  a message begun at my spec's starting positions. */
+    void seek(long offset) {
+        if (offset < 0) {
+            throw error("cannot seek to a negative offset");
+        }
+        int[] start = _spec.startPositions();
+        _spec.stepping().advance(start, offset);
+        System.arraycopy(start, 0, _positions, 0, _positions.length);
+    }
+
+    /** Return the result of converting C (an index into my spec's
+     *  alphabet) after first advancing my rotors. */
+    int convert(int c) {
+        _spec.stepping().step(_positions);
+        return _spec.encode(_positions, c);
+    }
+
+    /** Convert the LEN characters of SRC starting at SRCOFF, writing the
+     *  results to DST starting at DSTOFF, as Machine.convert does.
+     *  Returns LEN. */
+    int convert(char[] src, int srcOff, int len, char[] dst, int dstOff) {
+        Alphabet alphabet = _spec.alphabet();
+        SteppingModel model = _spec.stepping();
+        for (int x = 0; x < len; x++) {
+            int c = _spec.index(src[srcOff + x]);
+            model.step(_positions);
+            dst[dstOff + x] = alphabet.toChar(_spec.encode(_positions, c));
+        }
+        return len;
+    }
+
+    /** Return the conversion of MSG, advancing my rotors accordingly. */
+    String convert(String msg) {
+        char[] buffer = msg.toCharArray();
+        convert(buffer, 0, buffer.length, buffer, 0);
+        return new String(buffer);
+    }
+
+    /** The configuration I convert with. */
+    private final MachineSpec _spec;
+
+    /** Current rotor positions, reflector first. */
+    private final int[] _positions;
+
+}
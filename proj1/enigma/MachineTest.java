@@ -1,7 +1,9 @@
 package enigma;
 
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Random;
 import org.junit.Test;
 import org.junit.Rule;
 import org.junit.rules.Timeout;
@@ -22,24 +24,8 @@ public class MachineTest {
 
     private static final Alphabet AZ = new Alphabet(TestUtils.UPPER_STRING);
 
-    private static final HashMap<String, Rotor> ROTORS = new HashMap<>();
-
-    static {
-        HashMap<String, String> nav = TestUtils.NAVALA;
-        ROTORS.put("B", new Reflector("B", new Permutation(nav.get("B"), AZ)));
-        ROTORS.put("Beta",
-                new FixedRotor("Beta",
-                        new Permutation(nav.get("Beta"), AZ)));
-        ROTORS.put("III",
-                new MovingRotor("III",
-                        new Permutation(nav.get("III"), AZ), "V"));
-        ROTORS.put("IV",
-                new MovingRotor("IV", new Permutation(nav.get("IV"), AZ),
-                        "J"));
-        ROTORS.put("I",
-                new MovingRotor("I", new Permutation(nav.get("I"), AZ),
-                        "Q"));
-    }
+    private static final HashMap<String, Rotor> ROTORS =
+        TestUtils.navalRotors(AZ, "B", "Beta", "III", "IV", "I");
 
     private static final String[] ROTORS1 = { "B", "Beta", "III", "IV", "I" };
     private static final String SETTING1 = "AXLE";
@@ -154,4 +140,283 @@ public class MachineTest {
         assertEquals("QVPQSOKOILPUBKJZPISFXDW",
                 mach.convert("FROMHISSHOULDERHIAWATHA"));
     }
+
+    @Test
+    public void testStateCacheMatchesUncached() {
+        StringBuilder msg = new StringBuilder();
+        for (int x = 0; x < 2000; x++) {
+            msg.append((char) ('A' + (x * 7 + x / 26) % 26));
+        }
+        Machine plain = mach1();
+        plain.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", AZ));
+        String expected = plain.convert(msg.toString());
+
+        Machine cached = mach1();
+        cached.setStateCache(50);
+        cached.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", AZ));
+        assertEquals(expected, cached.convert(msg.toString()));
+        assertEquals(50, cached.stateCache().size());
+        cached.setRotors(SETTING1);
+        assertEquals(expected, cached.convert(msg.toString()));
+    }
+
+    @Test
+    public void testPlugboardFolding() {
+        String msg = "FROMHISSHOULDERHIAWATHATOOKTHECAMERAOFROSEWOOD";
+        String[] plugboards = { "(HQ) (EX) (IP) (TR) (BY)", "", "(AB)",
+                                "(HQE)" };
+        Machine mach = mach1();
+        for (String plugboard : plugboards) {
+            mach.setPlugboard(new Permutation(plugboard, AZ));
+            mach.setRotors(SETTING1);
+            String expected = mach.spec().start().convert(msg);
+            assertEquals(plugboard, expected, mach.convert(msg));
+            mach.insertRotors(new String[] { "B", "Beta", "I", "IV", "III" });
+            mach.setRotors(SETTING1);
+            expected = mach.spec().start().convert(msg);
+            assertEquals(plugboard, expected, mach.convert(msg));
+            mach.insertRotors(ROTORS1);
+        }
+    }
+
+    @Test
+    public void testSlowRotorsComposed() {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(61);
+        for (int k = 0; k < 20000; k++) {
+            text.append(AZ.toChar(random.nextInt(AZ.size())));
+        }
+        String msg = text.toString();
+        Machine mach = mach1();
+        mach.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", AZ));
+        for (String setting : new String[] { SETTING1, "AAUD", "ZZZZ" }) {
+            mach.setRotors(setting);
+            String expected = mach.spec().start().convert(msg);
+            assertEquals(setting, expected, mach.convert(msg));
+        }
+        Machine four = new Machine(AZ, 4, 3, ROTORS.values());
+        four.insertRotors(new String[] { "B", "III", "IV", "I" });
+        four.setPlugboard(new Permutation("", AZ));
+        four.setRotors("UDQ");
+        String expected = four.spec().start().convert(msg);
+        assertEquals(expected, four.convert(msg));
+    }
+
+    @Test
+    public void testQuietSteps() {
+        Machine mach = mach1();
+        SteppingModel model = mach.stepping();
+        long state = mach.state();
+        for (int k = 0; k < 20000; k++) {
+            int quiet = model.quietSteps(state);
+            long next = state;
+            for (int n = 1; n <= quiet; n++) {
+                next = model.step(next);
+                assertEquals(state + n, next);
+            }
+            assertNotEquals(state + quiet + 1, model.step(next));
+            state = model.step(state);
+        }
+    }
+
+    @Test
+    public void testConvertArrayRange() {
+        Machine mach = mach1();
+        mach.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", AZ));
+        char[] src = "--FROMHISSHOULDERHIAWATHA".toCharArray();
+        char[] dst = new char[30];
+        assertEquals(23, mach.convert(src, 2, 23, dst, 5));
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW", new String(dst, 5, 23));
+
+        mach = mach1();
+        mach.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", AZ));
+        CharBuffer in = CharBuffer.wrap("FROMHISSHOULDERHIAWATHA");
+        CharBuffer out = CharBuffer.allocate(10);
+        assertEquals(10, mach.convert(in, out));
+        assertEquals("QVPQSOKOIL", new String(out.array()));
+        assertEquals(13, in.remaining());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testConvertRejectsForeignCharacter() {
+        Machine mach = mach1();
+        mach.setPlugboard(new Permutation("", AZ));
+        mach.convert("HELLO-WORLD");
+    }
+
+    @Test
+    public void testTracer() {
+        Machine plain = mach1();
+        plain.setPlugboard(new Permutation("(YF) (HZ)", AZ));
+        String expected = plain.convert("YYY");
+        Machine mach = mach1();
+        mach.setPlugboard(new Permutation("(YF) (HZ)", AZ));
+        RingBufferTracer tracer = new RingBufferTracer(2);
+        mach.setTracer(tracer);
+        assertEquals(expected, mach.convert("YYY"));
+        assertEquals(3, tracer.count());
+        assertEquals(2, tracer.lines().size());
+        String first = tracer.lines().get(0);
+        assertTrue(first, first.startsWith("[AXLG] Y -> F -> "));
+        assertEquals(1 + 1 + 2 * 5, first.split(" -> ").length);
+        mach.setTracer(MachineTracer.NONE);
+        assertNull(mach.tracer());
+    }
+
+    /** Return a machine over AZ whose moving rotors have NOTCHES (the
+     *  fast rotor last) behind a reflector and one fixed rotor. */
+    private Machine notchedMachine(String... notches) {
+        ArrayList<Rotor> rotors = new ArrayList<Rotor>();
+        String[] names = new String[notches.length + 2];
+        rotors.add(new Reflector("B",
+                new Permutation(TestUtils.NAVALA.get("B"), AZ)));
+        rotors.add(new FixedRotor("Beta",
+                new Permutation(TestUtils.NAVALA.get("Beta"), AZ)));
+        names[0] = "B";
+        names[1] = "Beta";
+        for (int x = 0; x < notches.length; x++) {
+            names[x + 2] = "R" + x;
+            rotors.add(new MovingRotor(names[x + 2],
+                    new Permutation(TestUtils.NAVALA.get("I"), AZ),
+                    notches[x]));
+        }
+        Machine mach = new Machine(AZ, names.length, notches.length, rotors);
+        mach.insertRotors(names);
+        return mach;
+    }
+
+    @Test
+    public void testAdvanceMatchesStepping() {
+        String[][] layouts = {
+            {"Q", "E", "V"}, {"ZM", "ZM", "ZM"}, {"J", "A", "Z", "B"},
+            {"DEF", "QR", "A"}, {"", "V", "J"},
+        };
+        String[] settings = {"AAAAA", "ADUZP", "AQEVJ", "ZZZZZ", "AFEQA"};
+        long[] counts = {0, 1, 2, 5, 26, 650, 677, 16901, 40000};
+        for (String[] layout : layouts) {
+            for (String setting : settings) {
+                String key = setting.substring(0, layout.length + 1);
+                for (long n : counts) {
+                    Machine stepped = notchedMachine(layout);
+                    stepped.setRotors(key);
+                    for (long t = 0; t < n; t++) {
+                        stepped.advanceRotors();
+                    }
+                    Machine jumped = notchedMachine(layout);
+                    jumped.setRotors(key);
+                    jumped.advance(n);
+                    assertEquals(String.join(",", layout) + " " + key + " "
+                                 + n, stepped.getRotorPositions(),
+                                 jumped.getRotorPositions());
+                    jumped.advanceRotors();
+                    jumped.seek(n);
+                    assertEquals(stepped.getRotorPositions(),
+                                 jumped.getRotorPositions());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSeekResumesMessage() {
+        String msg = "FROMHISSHOULDERHIAWATHATOOKTHECAMERAOFROSEWOOD";
+        Machine mach = mach1();
+        mach.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", AZ));
+        String whole = mach.convert(msg);
+        mach.setRotors(SETTING1);
+        mach.seek(17);
+        assertEquals(whole.substring(17), mach.convert(msg.substring(17)));
+    }
+
+    @Test
+    public void testCycle() {
+        Machine mach = notchedMachine("Q", "E", "V");
+        mach.setRotors("AAAA");
+        CycleReport report = mach.cycle();
+        assertEquals(0, report.tail());
+        assertEquals(26 * 25 * 26, report.period());
+        assertEquals(26, report.moves(2));
+        assertEquals(26 * 26, report.moves(3));
+        assertEquals(26 * 25 * 26, report.moves(4));
+        assertEquals("AAAA", mach.getRotorPositions().substring(1));
+
+        String[][] layouts = { {"ZM", "ZM", "ZM"}, {"DEF", "QR", "A"} };
+        for (String[] layout : layouts) {
+            mach = notchedMachine(layout);
+            mach.setRotors("AEQA");
+            report = mach.cycle();
+            mach.advance(report.tail());
+            String start = mach.getRotorPositions();
+            for (long t = 0; t < report.period(); t++) {
+                mach.advanceRotors();
+                if (t + 1 < report.period()) {
+                    assertNotEquals(start, mach.getRotorPositions());
+                }
+            }
+            assertEquals(start, mach.getRotorPositions());
+        }
+    }
+
+    @Test
+    public void testPackedState() {
+        Machine mach = mach1();
+        mach.setPlugboard(new Permutation("(AQ) (EP)", AZ));
+        long start = mach.state();
+        String positions = mach.getRotorPositions();
+        String first = mach.convert("HELLOWORLDDOUBLESTEP");
+        assertNotEquals(start, mach.state());
+        long later = mach.state();
+        String rest = mach.convert("ANDMORE");
+        mach.setState(start);
+        assertEquals(positions, mach.getRotorPositions());
+        assertEquals(first, mach.convert("HELLOWORLDDOUBLESTEP"));
+        assertEquals(later, mach.state());
+        assertEquals(rest, mach.convert("ANDMORE"));
+    }
+
+    @Test
+    public void testSpecCursors() throws InterruptedException {
+        String msg = "FROMHISSHOULDERHIAWATHATOOKTHECAMERAOFROSEWOOD";
+        Machine mach = mach1();
+        mach.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", AZ));
+        MachineSpec spec = mach.spec();
+        String expected = mach.convert(msg);
+
+        MachineState one = spec.start();
+        MachineState two = spec.start();
+        assertEquals(expected.substring(0, 10),
+                     one.convert(msg.substring(0, 10)));
+        MachineState saved = one.copy();
+        assertEquals(expected.substring(0, 20),
+                     two.convert(msg.substring(0, 20)));
+        assertEquals(expected.substring(10), one.convert(msg.substring(10)));
+        one.restore(saved);
+        assertEquals(expected.substring(10), one.convert(msg.substring(10)));
+        two.seek(33);
+        assertEquals(expected.substring(33), two.convert(msg.substring(33)));
+
+        String[] results = new String[4];
+        Thread[] threads = new Thread[results.length];
+        for (int x = 0; x < threads.length; x++) {
+            final int k = x;
+            threads[x] = new Thread(() -> {
+                MachineState cursor = spec.start();
+                StringBuilder out = new StringBuilder();
+                for (int r = 0; r < 200; r++) {
+                    cursor.seek(0);
+                    out.setLength(0);
+                    out.append(cursor.convert(msg));
+                }
+                results[k] = out.toString();
+            });
+            threads[x].start();
+        }
+        for (int x = 0; x < threads.length; x++) {
+            threads[x].join();
+            assertEquals(expected, results[x]);
+        }
+
+        mach.restore(saved);
+        assertEquals(expected.substring(10), mach.convert(msg.substring(10)));
+    }
 }
@@ -0,0 +1,37 @@
+package enigma;
+
+/** Observer of the individual stages of each character conversion
+ *  performed by a Machine.  A Machine with no tracer (the default) does
+ *  not test for one in its bulk conversion loops.
+ *  @author Arthur Utnehmer
+ */
+interface MachineTracer {
+
+    /** Called when M begins converting C (an alphabet index), after its
+     *  rotors have advanced. */
+    void begin(Machine m, int c);
+
+    /** Called with C, the result of the next stage of the conversion in
+     *  progress: the plugboard, then each rotor pass in turn. */
+    void step(int c);
+
+    /** Called with C, the final result of the conversion in progress. */
+    void end(int c);
+
+    /** A tracer that ignores everything.  Installing it is the same as
+     *  installing no tracer. */
+    MachineTracer NONE = new MachineTracer() {
+        @Override
+        public void begin(Machine m, int c) {
+        }
+
+        @Override
+        public void step(int c) {
+        }
+
+        @Override
+        public void end(int c) {
+        }
+    };
+
+}
@@ -1,12 +1,24 @@
 package enigma;
 
-import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -33,15 +45,7 @@ public final class Main {
 
     public static void main(String... args) {
         try {
-            CommandArgs options =
-                new CommandArgs("--verbose --=(.*){1,3}", args);
-            if (!options.ok()) {
-                throw error("Usage: java enigma.Main [--verbose] "
-                            + "[INPUT [OUTPUT]]");
-            }
-
-            _verbose = options.contains("--verbose");
-            new Main(options.get("--")).process();
+            run(args);
             return;
         } catch (EnigmaException excp) {
             System.err.printf("Error: %s%n", excp.getMessage());
@@ -49,37 +53,155 @@ public final class Main {
         System.exit(1);
     }
 
+    /** Process ARGS as described for main, reporting an error by throwing
+     *  an EnigmaException rather than exiting. */
+    static void run(String... args) {
+        CommandArgs options =
+            new CommandArgs("--verbose --compiled --period --cache=(\\d+) "
+                            + "--threads=([1-9]\\d*) --image=(.+) "
+                            + "--serve=(.+) --binary=(.+) "
+                            + "--=(.*){1,3}", args);
+        if (!options.ok()) {
+            throw error("Usage: java enigma.Main [--verbose] [--compiled]"
+                        + " [--period] [--cache=STATES]"
+                        + " [--threads=N] [--image=FILE]"
+                        + " [--serve=ADDRESS] [--binary=KEY]"
+                        + " CONFIG [INPUT [OUTPUT]]");
+        }
+
+        _verbose = options.contains("--verbose");
+        _compiled = options.contains("--compiled");
+        _period = options.contains("--period");
+        if (options.contains("--cache")) {
+            _cacheStates =
+                intOption(options, "--cache", StateCache.MAX_CAPACITY);
+        }
+        if (options.contains("--threads")) {
+            _threads = intOption(options, "--threads", MAX_THREADS);
+        }
+        if (options.contains("--image")) {
+            _imageName = options.getFirst("--image");
+        }
+        if (options.contains("--binary")) {
+            _binaryKey = options.getFirst("--binary");
+        }
+        if (options.contains("--serve")) {
+            _serveAddress = options.getFirst("--serve");
+            if (options.get("--").size() > 1) {
+                throw error("--serve takes no INPUT or OUTPUT");
+            }
+        }
+        new Main(options.get("--")).process();
+    }
+
+    /** Return the value of option NAME in OPTIONS, a string of decimal
+     *  digits, which must be at most MAX. */
+    static int intOption(CommandArgs options, String name, int max) {
+        String value = options.getFirst(name);
+        int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException excp) {
+            result = -1;
+        }
+        if (result < 0 || result > max) {
+            throw error("%s must be at most %d, not %s", name, max, value);
+        }
+        return result;
+    }
+
     /** Open the necessary files for non-option arguments ARGS (see comment
       *  on main). */
     Main(List<String> args) {
-        _config = getInput(args.get(0));
+        _configName = args.get(0);
+        _config = getInput(_configName);
+
+        if (args.size() > 2 && sameFile(args.get(1), args.get(2))) {
+            FileChannel file = getInPlaceChannel(args.get(1));
+            _mapped = true;
+            _input = file;
+            _output = file;
+            return;
+        }
 
         if (args.size() > 1) {
-            _input = getInput(args.get(1));
+            _input = getInputChannel(args.get(1));
         } else {
-            _input = new Scanner(System.in);
+            _input = Channels.newChannel(System.in);
         }
 
         if (args.size() > 2) {
-            _output = getOutput(args.get(2));
+            Path output = Paths.get(args.get(2));
+            _mapped = _binaryKey != null
+                && Files.isRegularFile(Paths.get(args.get(1)))
+                && (Files.isRegularFile(output) || !Files.exists(output));
+            _output = getOutputChannel(args.get(2));
         } else {
-            _output = System.out;
+            _output = Channels.newChannel(System.out);
+        }
+    }
+
+    /** Return a Reader reading from the file named NAME. */
+    private Reader getInput(String name) {
+        try {
+            return new InputStreamReader(new FileInputStream(name));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a channel reading from the file named NAME. */
+    private ReadableByteChannel getInputChannel(String name) {
+        try {
+            return FileChannel.open(Paths.get(name), StandardOpenOption.READ);
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return true iff the files named INPUT and OUTPUT both exist and
+     *  are the same file. */
+    private static boolean sameFile(String input, String output) {
+        try {
+            return Files.exists(Paths.get(output))
+                && Files.isSameFile(Paths.get(input), Paths.get(output));
+        } catch (IOException excp) {
+            return false;
         }
     }
 
-    /** Return a Scanner reading from the file named NAME. */
-    private Scanner getInput(String name) {
+    /** Return a channel reading and writing the file named NAME, which
+     *  is both INPUT and OUTPUT, for converting it in place.  Only the
+     *  raw bytes (--binary) of a regular file keep their length and so
+     *  can be converted in place; opening the file as separate INPUT
+     *  and OUTPUT would truncate it before it is read. */
+    private FileChannel getInPlaceChannel(String name) {
+        if (_binaryKey == null || !Files.isRegularFile(Paths.get(name))) {
+            throw error("%s is both INPUT and OUTPUT, which needs --binary"
+                        + " and a regular file", name);
+        }
         try {
-            return new Scanner(new File(name));
+            return FileChannel.open(Paths.get(name),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
     }
 
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
+    /** Return a channel writing to the file named NAME, which is created
+     *  or truncated.  It is also readable if _mapped, as mapping it for
+     *  writing requires. */
+    private WritableByteChannel getOutputChannel(String name) {
         try {
-            return new PrintStream(new File(name));
+            if (_mapped) {
+                return FileChannel.open(Paths.get(name),
+                        StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            return FileChannel.open(Paths.get(name),
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
@@ -87,128 +209,305 @@ public final class Main {
 
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
-     *  results to _output. */
-    private void process() {
+     *  results to _output, which is then closed. */
+    void process() {
+        Machine enigma =
+            _imageName == null ? this.readConfig() : this.readImage();
+        if (_compiled) {
+            enigma.compileRotors(Machine.DEFAULT_COMPILED_SIZE);
+        }
+        enigma.setStateCache(_cacheStates);
+        if (_verbose) {
+            enigma.setTracer(new PrintTracer(System.err));
+        }
+        if (_serveAddress != null) {
+            serve(enigma);
+            return;
+        }
+        if (_binaryKey != null) {
+            processBytes(enigma);
+            return;
+        }
+        Charset charset = Charset.defaultCharset();
+        Reader reader = Channels.newReader(_input,
+                charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE),
+                BUFFER_SIZE);
+        String alphabet = new String(enigma.alphabet().getAlphabet());
+        int groupSize = _period ? 0 : GROUP_SIZE;
+        if (!_period && GroupWriter.asciiCompatible(charset)
+            && GroupWriter.isAscii(alphabet + LINE_SEPARATOR)) {
+            _groups = new GroupWriter(_output, groupSize, " ",
+                    LINE_SEPARATOR, BUFFER_SIZE);
+        } else {
+            _groups = new GroupWriter(
+                    Channels.newWriter(_output,
+                        charset.newEncoder()
+                            .onMalformedInput(CodingErrorAction.REPLACE)
+                            .onUnmappableCharacter(CodingErrorAction.REPLACE),
+                        -1),
+                    groupSize, " ", LINE_SEPARATOR, BUFFER_SIZE);
+        }
         try {
-            Machine enigma = this.readConfig();
-            Pattern patternForSetup =
-                    Pattern.compile("^.*([*]).*");
-            Matcher match;
-            while (_input.hasNextLine()) {
-                String setupCurrentLine = _input.nextLine();
-                match = patternForSetup.matcher(setupCurrentLine);
-                if (match.matches()) {
-                    setUp(enigma, setupCurrentLine);
-                } else {
-                    setupCurrentLine = setupCurrentLine.trim();
-                    setupCurrentLine = setupCurrentLine.replaceAll("\\s", "");
-                    printMessageLine(enigma.convert(setupCurrentLine));
-                }
+            MessageReader messages = new MessageReader(reader, BUFFER_SIZE);
+            if (_period) {
+                messages.run(new PeriodHandler(enigma));
+            } else if (_threads > 1 && !_verbose) {
+                ParallelEncoder encoder =
+                    new ParallelEncoder(enigma, this::setUp, _groups,
+                                        _threads);
+                messages.run(encoder);
+                encoder.finish();
+            } else {
+                messages.run(new SequentialHandler(enigma));
             }
-        } catch (Exception excp) {
-            throw error("No could not open", "no");
+            _groups.close();
+            reader.close();
+            _config.close();
+        } catch (IOException excp) {
+            throw error("I/O error: %s", excp.getMessage());
+        } catch (EnigmaException excp) {
+            flushConverted();
+            throw excp;
+        } catch (RuntimeException excp) {
+            flushConverted();
+            throw error("malformed input (%s)", excp);
         }
+    }
 
-        System.exit(0);
+    /** Write out the messages converted before an error in the input,
+     *  as the error itself is reported.  A further error while doing so
+     *  is ignored. */
+    private void flushConverted() {
+        try {
+            _groups.flush();
+        } catch (IOException excp) {
+            return;
+        }
     }
 
-    /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
-    private Machine readConfig() {
-        _rotorMoving = new ArrayList<String>();
-        _rotorStill = new ArrayList<String>();
-        Pattern patternMoving =
-                Pattern.compile("^[\\s]*([A-z0-9]+)[\\s]*([M]).*");
-        Pattern patternStill =
-                Pattern.compile("^[\\s]*([A-z]+)[\\s]*"
-                        + "([RN])([A-z]*)\\s*([(].*[)])");
-        Pattern excess = Pattern.compile("^\\s*([(].*[)])");
-        Matcher matcher;
+    /** Convert the raw bytes of _input with ENIGMA, set up by
+     *  _binaryKey, writing them unchanged in number and order to
+     *  _output.  There is no charset decoding, line splitting, or
+     *  grouping.  Between two regular files, the bytes are converted
+     *  through memory-mapped windows rather than read and written, and
+     *  when INPUT and OUTPUT are the same file, in place.
+     *  Closes _input, _output, and _config. */
+    private void processBytes(Machine enigma) {
+        if (!enigma.alphabet().isBytes()) {
+            throw error("--binary needs the alphabet %s",
+                        ConfigParser.BYTE_ALPHABET);
+        }
+        setUpBytes(enigma, _binaryKey);
         try {
-            String alphabetImported = _config.nextLine();
-            _importedAlphabet = new Alphabet(alphabetImported);
-            int numberOfRotorSlots = _config.nextInt();
-            int numberOfPawls = _config.nextInt();
-
-            while (_config.hasNextLine()) {
-                String lineOfText = _config.nextLine();
-                if (lineOfText.isBlank()) {
-                    assert true;
-                } else {
-                    matcher = patternMoving.matcher(lineOfText);
-                    if (matcher.matches()) {
-                        _rotorMoving.add(lineOfText);
-                    }
-                    matcher = patternStill.matcher(lineOfText);
-                    if (matcher.matches()) {
-                        _rotorStill.add(lineOfText);
+            if (_mapped) {
+                MappedFileEncoder.convert(enigma, (FileChannel) _input,
+                                          (FileChannel) _output,
+                                          MappedFileEncoder.WINDOW);
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (_input.read(buffer) >= 0) {
+                    buffer.flip();
+                    enigma.convert(buffer.array(), 0, buffer.limit(),
+                                   buffer.array(), 0);
+                    while (buffer.hasRemaining()) {
+                        _output.write(buffer);
                     }
-                    matcher = excess.matcher(lineOfText);
-                    if (matcher.matches()) {
-                        _rotorStill.set(_rotorStill.size() - 1,
-                                _rotorStill.get(_rotorStill.size() - 1)
-                                        + lineOfText.trim());
+                    buffer.clear();
+                }
+            }
+            _output.close();
+            _input.close();
+            _config.close();
+        } catch (IOException excp) {
+            throw error("I/O error: %s", excp.getMessage());
+        }
+    }
+
+    /** Set M, whose alphabet is the byte values, according to KEY: an
+     *  optional '*', the rotor names, the rotor positions as one word of
+     *  two hexadecimal digits per rotor, and plugboard cycles of
+     *  hexadecimal byte values, as in "* B III II I 00ff1b (0a0d)". */
+    private void setUpBytes(Machine M, String key) {
+        ArrayList<String> names = new ArrayList<String>();
+        String positions = null;
+        StringBuilder cycles = new StringBuilder();
+        int size = M.alphabet().size();
+        int[] plugboard = new int[size];
+        for (int x = 0; x < size; x++) {
+            plugboard[x] = x;
+        }
+        for (String word : key.trim().split("\\s+")) {
+            if (word.equals("*")) {
+                continue;
+            } else if (word.startsWith("(") && word.endsWith(")")) {
+                int[] cycle = hexBytes(word.substring(1, word.length() - 1));
+                for (int x = 0; x < cycle.length; x++) {
+                    if (plugboard[cycle[x]] != cycle[x]) {
+                        throw error("byte %02x repeated in plugboard",
+                                    cycle[x]);
                     }
                 }
+                for (int x = 0; x < cycle.length; x++) {
+                    plugboard[cycle[x]] = cycle[(x + 1) % cycle.length];
+                }
+                cycles.append(cycles.length() > 0 ? " " : "").append(word);
+            } else if (names.size() < M.numRotors()) {
+                names.add(word);
+            } else if (positions == null) {
+                positions = word;
+            } else {
+                throw error("malformed binary key: %s", key);
             }
+        }
+        if (positions == null) {
+            throw error("binary key has no rotor positions");
+        }
+        M.insertRotors(names.toArray(new String[0]));
+        if (M.positions().length != M.numRotors()) {
+            throw error("binary key names unknown rotors");
+        }
+        int[] settings = hexBytes(positions);
+        if (settings.length != M.numRotors() - 1) {
+            throw error("binary key needs %d rotor positions",
+                        M.numRotors() - 1);
+        }
+        char[] setting = new char[settings.length];
+        for (int x = 0; x < settings.length; x++) {
+            setting[x] = M.alphabet().toChar(settings[x]);
+        }
+        M.setPlugboard(new Permutation(plugboard, cycles.toString(),
+                                       M.alphabet()));
+        M.setRotors(new String(setting));
+    }
 
-            _listOfRotors = new ArrayList<Rotor>();
-            Rotor rotar = readRotor();
-            while (rotar != null) {
-                _listOfRotors.add(rotar);
-                rotar = readRotor();
+    /** Return the byte values written in HEX, two hexadecimal digits
+     *  each. */
+    private static int[] hexBytes(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw error("bad hexadecimal bytes %s", hex);
+        }
+        int[] result = new int[hex.length() / 2];
+        for (int x = 0; x < result.length; x++) {
+            result[x] = Alphabet.hexByte(hex, 2 * x);
+            if (result[x] < 0) {
+                throw error("bad hexadecimal bytes %s", hex);
             }
+        }
+        return result;
+    }
 
-            return new Machine(_importedAlphabet,
-                    numberOfRotorSlots, numberOfPawls, _listOfRotors);
+    /** Serve requests to convert messages with copies of ENIGMA on
+     *  _serveAddress (see EnigmaServer) until the process is killed.
+     *  The server converts through MachineSpec lookups rather than
+     *  Machine's own conversion path, so ENIGMA's rotors are compiled
+     *  first, with or without --compiled, and every copy shares their
+     *  per-setting tables. */
+    private void serve(Machine enigma) {
+        enigma.compileRotors(Machine.DEFAULT_COMPILED_SIZE);
+        try (EnigmaServer server =
+                 new EnigmaServer(enigma, this::setUp, MAX_SERVED_SPECS)) {
+            server.serve(EnigmaServer.bind(_serveAddress));
+        } catch (IOException excp) {
+            throw error("server error: %s", excp.getMessage());
+        }
+    }
+
+    /** Handles input on the calling thread, converting and printing
+     *  message text as it arrives. */
+    private class SequentialHandler implements MessageReader.Handler {
+
+        /** A handler using ENIGMA. */
+        SequentialHandler(Machine enigma) {
+            _enigma = enigma;
+        }
+
+        @Override
+        public void setting(String line) {
+            setUp(_enigma, line);
+            _configured = true;
+        }
 
-        } catch (NoSuchElementException excp) {
-            throw error("configuration file truncated");
+        @Override
+        public void message(char[] msg, int off, int len)
+            throws IOException {
+            if (!_configured) {
+                throw error("message appears before any setting line");
+            }
+            _enigma.convert(msg, off, len, msg, off);
+            _groups.write(msg, off, len);
+        }
+
+        @Override
+        public void endLine() throws IOException {
+            _groups.endLine();
         }
+
+        /** Machine converting the messages. */
+        private final Machine _enigma;
+
+        /** True once a setting line has been seen. */
+        private boolean _configured;
     }
 
+    /** Handles input by reporting, for each setting line, the periodic
+     *  behavior of the rotor positions it establishes.  Message lines are
+     *  ignored. */
+    private class PeriodHandler implements MessageReader.Handler {
+
+        /** A handler using ENIGMA. */
+        PeriodHandler(Machine enigma) {
+            _enigma = enigma;
+        }
+
+        @Override
+        public void setting(String line) throws IOException {
+            setUp(_enigma, line);
+            String report = line.trim() + LINE_SEPARATOR
+                + _enigma.cycle();
+            _groups.write(report.toCharArray(), 0, report.length());
+            _groups.endLine();
+        }
+
+        @Override
+        public void message(char[] msg, int off, int len) {
+        }
 
-    private void printRotorInto() {
-        for (Rotor element: _listOfRotors) {
-            System.out.println("Name:" + element.name()
-                    + " rotates:" + element.rotates()
-                    + " notches:" + element.notches()
-                    + " cycles:"
-                    + element.permutation().getCycles());
+        @Override
+        public void endLine() {
         }
+
+        /** Machine being analyzed. */
+        private final Machine _enigma;
     }
 
-    /** Return a rotor, reading its description from _config. */
-    private Rotor readRotor() {
+    /** Return an Enigma machine configured from the compiled image
+     *  _imageName of configuration file _configName, first compiling the
+     *  image if it is missing or out of date (see ConfigImage). */
+    private Machine readImage() {
+        byte[] source;
         try {
-            if (!_rotorMoving.isEmpty()) {
-                String currentRotor = _rotorMoving.remove(0);
-                Scanner sc = new Scanner(currentRotor);
-                String name = sc.next();
-                String notches = sc.next();
-                notches = notches.substring(1, notches.length());
-                sc.useDelimiter("^\\s*([(].*[)])");
-                String permutation = sc.next();
-                return new MovingRotor(name,
-                        new Permutation(
-                                permutation, _importedAlphabet), notches);
-            } else if (!_rotorStill.isEmpty()) {
-                String currentRotor = _rotorStill.remove(0);
-                Scanner sc = new Scanner(currentRotor);
-                String name = sc.next();
-                String type = sc.next();
-                sc.useDelimiter("^\\s*([(].*[)])");
-                String permutation = sc.next();
-
-                return new FixedRotor(name,
-                        new Permutation(permutation, _importedAlphabet));
-            } else {
-                return null;
-            }
-
-        } catch (NoSuchElementException excp) {
-            throw error("bad rotor description");
+            source = Files.readAllBytes(Paths.get(_configName));
+        } catch (IOException excp) {
+            throw error("could not open %s", _configName);
         }
+        Path image = Paths.get(_imageName);
+        Machine result = ConfigImage.load(image, source);
+        if (result == null) {
+            result = readConfig();
+            ConfigImage.save(image, source, result);
+        }
+        _importedAlphabet = result.alphabet();
+        return result;
+    }
+
+    /** Return an Enigma machine configured from the contents of configuration
+     *  file _config. */
+    private Machine readConfig() {
+        Machine result = new ConfigParser(_config, BUFFER_SIZE).parse();
+        _importedAlphabet = result.alphabet();
+        return result;
     }
 
     /** Set M according to the specification given on SETTINGS,
@@ -270,51 +569,73 @@ public final class Main {
         return _verbose;
     }
 
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        char[] display = msg.toCharArray();
-        int charCount = 0;
-        String messageToPrint = "";
-        for (int x = 0; x < display.length; x++) {
-            if (charCount == 5) {
-                _output.print(messageToPrint);
-                messageToPrint = "";
-                charCount = 0;
-                if (x - 1 < display.length) {
-                    _output.print(" ");
-                }
-            }
-            messageToPrint = messageToPrint + display[x];
-            charCount++;
-        }
-        _output.println(messageToPrint);
-    }
-
     /** Alphabet used in this machine. */
     private Alphabet _alphabet;
 
+    /** Size in characters of the input and output buffers. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Number of characters in each printed group. */
+    private static final int GROUP_SIZE = 5;
+
+    /** Terminator of each printed line. */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /** Largest number of --threads. */
+    static final int MAX_THREADS = 1 << 10;
+
+    /** Largest number of setting lines whose specs a server keeps. */
+    private static final int MAX_SERVED_SPECS = 1 << 12;
+
     /** Source of input messages. */
-    private Scanner _input;
+    private ReadableByteChannel _input;
+
+    /** True iff the raw bytes of one regular file are converted to
+     *  another, or to itself, through memory-mapped windows. */
+    private boolean _mapped;
 
     /** Source of machine configuration. */
-    private Scanner _config;
+    private Reader _config;
+
+    /** Name of the configuration file. */
+    private String _configName;
 
-    /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    /** Channel for encoded/decoded messages. */
+    private WritableByteChannel _output;
+
+    /** Formatter writing grouped messages to _output. */
+    private GroupWriter _groups;
 
     /** True if --verbose specified. */
     private static boolean _verbose;
 
-    /** String that has list of moving rotors that are in this machine. */
-    private ArrayList<String> _rotorMoving;
+    /** True if --compiled specified: rotors use per-setting tables. */
+    private static boolean _compiled;
+
+    /** True if --period specified: report rotor periods rather than
+     *  converting messages. */
+    private static boolean _period;
+
+    /** Number of rotor states whose composite tables are memoized
+     *  (--cache); 0 if off. */
+    private static int _cacheStates;
+
+    /** Number of threads encoding messages (--threads). */
+    private static int _threads = 1;
+
+    /** Name of the compiled configuration image (--image), or null if
+     *  the configuration is always parsed. */
+    private static String _imageName;
+
+    /** Key with which to convert INPUT as raw bytes (--binary), or null
+     *  to convert it as text. */
+    private static String _binaryKey;
 
-    /** String that has list of still rotors that are in this machine. */
-    private ArrayList<String> _rotorStill;
+    /** Address on which to serve requests (--serve), or null to
+     *  process INPUT. */
+    private static String _serveAddress;
 
     /** Alphabet imported from conf file.*/
     private Alphabet _importedAlphabet;
 
-    /** List of rotors that are used to make this machine. */
-    private ArrayList<Rotor> _listOfRotors;
 }
@@ -1,4 +1,13 @@
 package enigma;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -6,11 +15,104 @@ import static org.junit.Assert.*;
 public class MainTest {
 
     @Test
-    public void testReadConfig() {
-        String[] args = {"/home/arthur/repo/proj1/testing/test.conf",
-                         "/home/arthur/repo/proj1/testing/test.in"};
-        Main.main(args);
+    public void testReadConfig() throws IOException {
+        Path output = Files.createTempFile("enigma", ".out");
+        try {
+            String[] args = {"../testing/test.conf",
+                             "../testing/test.in", output.toString()};
+            Main.main(args);
+        } finally {
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    public void testOutputBeforeError() throws IOException {
+        Path input = Files.createTempFile("enigma", ".in");
+        Path output = Files.createTempFile("enigma", ".out");
+        try {
+            Files.write(input, ("* B Beta III IV I AXLE (HQ) (EX) (IP)"
+                                + " (TR) (BY)\n"
+                                + "FROM HIS SHOULDER HIAWATHA\n"
+                                + "* B Beta III IV Q AXLE\n"
+                                + "HELLO\n").getBytes(UTF_8));
+            try {
+                Main.run("../testing/correct/default.conf", input.toString(),
+                         output.toString());
+                fail("bad rotor name accepted");
+            } catch (EnigmaException excp) {
+                assertEquals("QVPQS OKOIL PUBKJ ZPISF XDW"
+                             + System.lineSeparator(),
+                             new String(Files.readAllBytes(output), UTF_8));
+            }
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    public void testPeriodReportsNonAsciiRotor() throws IOException {
+        String config = "ABCDEFGHIJKLMNOPQRSTUVWXYZ\n 3 1\n"
+            + " \u00c4 MQ (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)\n"
+            + " Beta N (ALBEVFCYODJWUGNMQTZSKPR) (HIX)\n"
+            + " B R (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)\n"
+            + "     (RX) (SZ) (TV)\n";
+        String setting = "* B Beta \u00c4 AA";
+        Path conf = Files.createTempFile("enigma", ".conf");
+        Path input = Files.createTempFile("enigma", ".in");
+        Path output = Files.createTempFile("enigma", ".out");
+        try {
+            Files.write(conf, config.getBytes(UTF_8));
+            Files.write(input, (setting + "\n").getBytes(UTF_8));
+            Main.main("--period", conf.toString(), input.toString(),
+                      output.toString());
+            Charset charset = Charset.defaultCharset();
+            byte[] result = Files.readAllBytes(output);
+            String text = new String(result, charset);
+            assertArrayEquals(text.getBytes(charset), result);
+            String echoed = new String(setting.getBytes(UTF_8), charset);
+            echoed = new String(echoed.getBytes(charset), charset);
+            assertTrue(text.startsWith(echoed + System.lineSeparator()));
+        } finally {
+            Files.delete(conf);
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    public void testSameFileConvertedInPlace() throws IOException {
+        Path conf = Files.createTempFile("enigma", ".conf");
+        Path file = Files.createTempFile("enigma", ".dat");
+        try {
+            Files.write(conf, ConfigParserTest.byteConfig().getBytes(UTF_8));
+            byte[] data = new byte[70_001];
+            for (int x = 0; x < data.length; x++) {
+                data[x] = (byte) (x * 31 + x / 256);
+            }
+            Files.write(file, data);
+            try {
+                Main.run(conf.toString(), file.toString(), file.toString());
+                fail("text conversion of a file in place");
+            } catch (EnigmaException excp) {
+                assertArrayEquals(data, Files.readAllBytes(file));
+            }
 
+            Machine mach = new ConfigParser(
+                new StringReader(ConfigParserTest.byteConfig()), 4096).parse();
+            mach.insertRotors(new String[] { "B", "Beta", "II", "I" });
+            mach.setPlugboard(ConfigParserTest.plugboard(mach.alphabet()));
+            mach.setRotors("\u00fe\u0010\u00ff");
+            byte[] expected = new byte[data.length];
+            mach.convert(data, 0, data.length, expected, 0);
+            Main.run("--binary=* B Beta II I fe10ff (0001)", conf.toString(),
+                     file.toString(), file.toString());
+            assertArrayEquals(expected, Files.readAllBytes(file));
+        } finally {
+            Files.delete(conf);
+            Files.delete(file);
+        }
     }
 
 }
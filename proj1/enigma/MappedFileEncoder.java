@@ -0,0 +1,70 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static enigma.EnigmaException.*;
+
+/** File-to-file conversion of raw bytes through memory-mapped windows.
+ *  The input and output files are mapped a window at a time at the same
+ *  offsets, so files of any length (including those over the 2 GB limit
+ *  of a single mapping) are converted with a bounded amount of address
+ *  space, and the data is never copied through the channels' read and
+ *  write calls or any charset conversion.  Within a window, bytes are
+ *  converted in chunks small enough to stay in cache: each chunk is
+ *  copied in bulk from the input mapping to a scratch array, converted
+ *  there in place by Machine.convert(byte[], ...), and copied in bulk to
+ *  the output mapping.  If the input and output are the same channel,
+ *  the file is converted in place through a single read-write mapping
+ *  per window.
+ *  @author Arthur Utnehmer
+ */
+final class MappedFileEncoder {
+
+    /** Default size in bytes of each mapped window. */
+    static final long WINDOW = 1L << 26;
+
+    /** Not instantiable. */
+    private MappedFileEncoder() {
+    }
+
+    /** Convert all the bytes of the file open on IN with MACHINE, whose
+     *  alphabet must be Alphabet.bytes(), writing them at the same
+     *  offsets to the file open on OUT, which must be open for reading
+     *  and writing and is left the same length as IN.  OUT may be IN
+     *  itself.  Maps at most WINDOW bytes of each file at a time.
+     *  Returns the number of bytes converted. */
+    static long convert(Machine machine, FileChannel in, FileChannel out,
+                        long window) throws IOException {
+        if (window < 1) {
+            throw error("mapped window must be positive");
+        }
+        window = Math.min(window, Integer.MAX_VALUE);
+        boolean inPlace = in == out;
+        long size = in.size();
+        byte[] chunk = new byte[(int) Math.max(1, Math.min(CHUNK, size))];
+        for (long pos = 0; pos < size; pos += window) {
+            long len = Math.min(window, size - pos);
+            MappedByteBuffer dst =
+                out.map(FileChannel.MapMode.READ_WRITE, pos, len);
+            ByteBuffer src = inPlace ? dst.duplicate()
+                : in.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            while (src.hasRemaining()) {
+                int n = Math.min(chunk.length, src.remaining());
+                src.get(chunk, 0, n);
+                machine.convert(chunk, 0, n, chunk, 0);
+                dst.put(chunk, 0, n);
+            }
+        }
+        if (!inPlace && out.size() > size) {
+            out.truncate(size);
+        }
+        return size;
+    }
+
+    /** Size in bytes of the chunks converted at once. */
+    private static final int CHUNK = 1 << 16;
+
+}
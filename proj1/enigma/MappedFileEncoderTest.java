@@ -0,0 +1,102 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the MappedFileEncoder class.
+ *  @author Arthur Utnehmer
+ */
+public class MappedFileEncoderTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    /** Return a byte machine with a plugboard, set to its first
+     *  position. */
+    private static Machine machine() {
+        Machine mach = new ConfigParser(
+            new StringReader(ConfigParserTest.byteConfig()), 4096).parse();
+        mach.insertRotors(new String[] { "B", "Beta", "II", "I" });
+        mach.setPlugboard(ConfigParserTest.plugboard(mach.alphabet()));
+        mach.setRotors("\u00fe\u0010\u00ff");
+        return mach;
+    }
+
+    /** Return SIZE bytes of varied data. */
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for (int x = 0; x < size; x++) {
+            data[x] = (byte) (x * 31 + x / 256);
+        }
+        return data;
+    }
+
+    @Test
+    public void convertsAcrossWindows() throws IOException {
+        byte[] data = data(200_003);
+        byte[] expected = new byte[data.length];
+        machine().convert(data, 0, data.length, expected, 0);
+        Path input = Files.createTempFile("enigma", ".in");
+        Path output = Files.createTempFile("enigma", ".out");
+        try {
+            Files.write(input, data);
+            for (long window : new long[] { 997, 4099, 1 << 16, 1 << 20 }) {
+                Files.write(output, new byte[data.length + 10]);
+                try (FileChannel in = FileChannel.open(input);
+                     FileChannel out = FileChannel.open(output,
+                         StandardOpenOption.READ,
+                         StandardOpenOption.WRITE)) {
+                    assertEquals(data.length,
+                                 MappedFileEncoder.convert(machine(), in,
+                                                           out, window));
+                }
+                assertArrayEquals(expected, Files.readAllBytes(output));
+            }
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    public void convertsInPlace() throws IOException {
+        byte[] data = data(70_001);
+        byte[] expected = new byte[data.length];
+        machine().convert(data, 0, data.length, expected, 0);
+        Path file = Files.createTempFile("enigma", ".dat");
+        try {
+            Files.write(file, data);
+            try (FileChannel channel = FileChannel.open(file,
+                     StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedFileEncoder.convert(machine(), channel, channel, 8191);
+            }
+            assertArrayEquals(expected, Files.readAllBytes(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void convertsEmptyFile() throws IOException {
+        Path file = Files.createTempFile("enigma", ".dat");
+        try (FileChannel channel = FileChannel.open(file,
+                 StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            assertEquals(0, MappedFileEncoder.convert(machine(), channel,
+                                                      channel, 1 << 16));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
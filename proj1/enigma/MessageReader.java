@@ -0,0 +1,127 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/** Splits an input stream into setting lines and message text in a
+ *  single pass over large blocks.  A line whose first non-blank
+ *  character is '*' is a setting line; any other line is a message line,
+ *  whose whitespace is dropped.  Message characters are delivered in
+ *  chunks as they arrive, so lines of any length need only a fixed
+ *  amount of memory.  Line terminators are those of Scanner.nextLine.
+ *  @author Arthur Utnehmer
+ */
+class MessageReader {
+
+    /** Receiver of the pieces of the input. */
+    interface Handler {
+
+        /** Called with LINE, a complete setting line. */
+        void setting(String line) throws IOException;
+
+        /** Called with the next LEN message characters of the current
+         *  line, which are MSG[OFF..OFF+LEN-1].  MSG may be reused once
+         *  this returns, but the handler may modify it until then. */
+        void message(char[] msg, int off, int len) throws IOException;
+
+        /** Called at the end of each message line, including empty
+         *  ones. */
+        void endLine() throws IOException;
+    }
+
+    /** A reader taking input from IN in blocks of BLOCKSIZE characters
+     *  and delivering message characters in chunks of at most the same
+     *  size. */
+    MessageReader(Reader in, int blockSize) {
+        _in = in;
+        _block = new char[blockSize];
+        _message = new char[blockSize];
+    }
+
+    /** Read all of my input, passing its pieces to HANDLER in order. */
+    void run(Handler handler) throws IOException {
+        StringBuilder settings = new StringBuilder();
+        int messageLength = 0;
+        int state = LINE_START;
+        boolean lineOpen = false, afterCR = false;
+        for (int n = _in.read(_block); n >= 0; n = _in.read(_block)) {
+            for (int x = 0; x < n; x++) {
+                char ch = _block[x];
+                if (afterCR) {
+                    afterCR = false;
+                    if (ch == '\n') {
+                        continue;
+                    }
+                }
+                if (isLineTerminator(ch)) {
+                    afterCR = ch == '\r';
+                    if (state == SETTINGS) {
+                        handler.setting(settings.toString());
+                    } else {
+                        if (messageLength > 0) {
+                            handler.message(_message, 0, messageLength);
+                            messageLength = 0;
+                        }
+                        handler.endLine();
+                    }
+                    state = LINE_START;
+                    lineOpen = false;
+                    continue;
+                }
+                lineOpen = true;
+                if (state == SETTINGS) {
+                    settings.append(ch);
+                } else if (!isWhitespace(ch)) {
+                    if (state == LINE_START && ch == '*') {
+                        state = SETTINGS;
+                        settings.setLength(0);
+                        settings.append(ch);
+                        continue;
+                    }
+                    state = MESSAGE;
+                    _message[messageLength] = ch;
+                    messageLength += 1;
+                    if (messageLength == _message.length) {
+                        handler.message(_message, 0, messageLength);
+                        messageLength = 0;
+                    }
+                }
+            }
+        }
+        if (state == SETTINGS) {
+            handler.setting(settings.toString());
+        } else if (lineOpen) {
+            if (messageLength > 0) {
+                handler.message(_message, 0, messageLength);
+            }
+            handler.endLine();
+        }
+    }
+
+    /** Return true iff CH ends a line, as for Scanner.nextLine. */
+    static boolean isLineTerminator(char ch) {
+        return ch == '\n' || ch == '\r' || ch == '\u2028' || ch == '\u2029'
+            || ch == '\u0085';
+    }
+
+    /** Return true iff CH is whitespace in the sense of the regular
+     *  expression \\s. */
+    static boolean isWhitespace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B'
+            || ch == '\f' || ch == '\r';
+    }
+
+    /** Line states of run: nothing but blanks yet, inside a setting
+     *  line, inside a message line. */
+    private static final int LINE_START = 0, SETTINGS = 1, MESSAGE = 2;
+
+    /** Source of input. */
+    private final Reader _in;
+
+    /** Block of input being scanned. */
+    private final char[] _block;
+
+    /** Message characters not yet delivered. */
+    private final char[] _message;
+
+}
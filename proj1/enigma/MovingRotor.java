@@ -27,6 +27,11 @@ class MovingRotor extends Rotor {
         }
     }
 
+    @Override
+    Rotor copy() {
+        return copyState(new MovingRotor(name(), permutation(), _notches));
+    }
+
     @Override
     String notches() {
         return _notches;
@@ -205,4 +205,24 @@ public class MovingRotorTest {
                 rotor.convertBackward(alpha.indexOf('S')));
     }
 
+    @Test
+    public void compiledMatchesArithmetic() {
+        setRotor("IV", NAVALA, "J");
+        Rotor plain = new MovingRotor("IV",
+                new Permutation(NAVALA.get("IV"), UPPER), "J");
+        rotor.compile(26);
+        assertTrue(rotor.compiled());
+        for (int s = 0; s < 26; s += 1) {
+            rotor.set(s);
+            plain.set(s);
+            for (int p = 0; p < 26; p += 1) {
+                assertEquals(plain.convertForward(p), rotor.convertForward(p));
+                assertEquals(plain.convertBackward(p),
+                             rotor.convertBackward(p));
+            }
+        }
+        rotor.compile(10);
+        assertFalse(rotor.compiled());
+    }
+
 }
@@ -0,0 +1,125 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import static enigma.EnigmaException.*;
+
+/** Log-likelihoods of the n-grams (runs of N characters) of some
+ *  language, for scoring candidate decryptions.  The table is read from
+ *  lines of the form "NGRAM COUNT", e.g. "TION 13168375", giving how
+ *  often each n-gram occurs in a sample text; every NGRAM must have the
+ *  same length, and lines for n-grams with characters outside the
+ *  alphabet are ignored.  N-grams that are not listed get the
+ *  log-likelihood of one hundredth of an occurrence.  Scores are kept
+ *  in one flat array indexed by the n-gram as a mixed-radix number, so
+ *  scoring a text takes one lookup per character.
+ *  @author Arthur Utnehmer
+ */
+final class NgramTable {
+
+    /** A table over ALPHABET read from IN. */
+    NgramTable(Alphabet alphabet, Reader in) throws IOException {
+        _size = alphabet.size();
+        BufferedReader lines = new BufferedReader(in);
+        long[] counts = null;
+        long total = 0;
+        int lineNumber = 0;
+        for (String line = lines.readLine(); line != null;
+             line = lines.readLine()) {
+            lineNumber += 1;
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length != 2) {
+                throw error("n-gram table line %d: expected NGRAM COUNT",
+                            lineNumber);
+            }
+            if (counts == null) {
+                _n = fields[0].length();
+                double cells = Math.pow(_size, _n);
+                if (cells > MAX_CELLS) {
+                    throw error("%d-gram table too large for a %d-character"
+                                + " alphabet", _n, _size);
+                }
+                counts = new long[(int) cells];
+            } else if (fields[0].length() != _n) {
+                throw error("n-gram table line %d: %s is not a %d-gram",
+                            lineNumber, fields[0], _n);
+            }
+            long count;
+            try {
+                count = Long.parseLong(fields[1]);
+            } catch (NumberFormatException excp) {
+                throw error("n-gram table line %d: bad count %s",
+                            lineNumber, fields[1]);
+            }
+            int index = 0;
+            for (int k = 0; k < _n && index >= 0; k++) {
+                int c = alphabet.toInt(fields[0].charAt(k));
+                index = c < 0 ? -1 : index * _size + c;
+            }
+            if (index >= 0 && count > 0) {
+                counts[index] += count;
+                total += count;
+            }
+        }
+        if (total == 0) {
+            throw error("n-gram table has no n-grams in the alphabet");
+        }
+        _scores = new float[counts.length];
+        double log = Math.log10(total);
+        float floor = (float) (Math.log10(FLOOR_COUNT) - log);
+        for (int k = 0; k < counts.length; k++) {
+            _scores[k] = counts[k] == 0 ? floor
+                : (float) (Math.log10(counts[k]) - log);
+        }
+        _span = counts.length / _size;
+    }
+
+    /** Return the length of my n-grams. */
+    int n() {
+        return _n;
+    }
+
+    /** Return the sum of the log-likelihoods of the n-grams of
+     *  TEXT[0 .. LEN-1], which are indices into my alphabet. */
+    double score(int[] text, int len) {
+        if (len < _n) {
+            return 0;
+        }
+        int index = 0;
+        for (int k = 0; k < _n - 1; k++) {
+            index = index * _size + text[k];
+        }
+        double result = 0;
+        for (int k = _n - 1; k < len; k++) {
+            index = (index % _span) * _size + text[k];
+            result += _scores[index];
+        }
+        return result;
+    }
+
+    /** Largest number of n-grams a table may have. */
+    private static final double MAX_CELLS = 1 << 26;
+
+    /** Count assumed for n-grams that are not listed. */
+    private static final double FLOOR_COUNT = 0.01;
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** Length of each n-gram. */
+    private int _n;
+
+    /** _scores[g] is the log-likelihood of the n-gram with index G. */
+    private final float[] _scores;
+
+    /** Number of (n-1)-grams, so that the index of an n-gram modulo
+     *  _span is the index of its last n-1 characters. */
+    private final int _span;
+
+}
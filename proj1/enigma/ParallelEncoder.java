@@ -0,0 +1,277 @@
+package enigma;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import static enigma.EnigmaException.*;
+
+/** A MessageReader.Handler that encodes the messages of an input on
+ *  several threads.  Each setting line completely resets the machine, so
+ *  a setting line and the message lines up to the next one form an
+ *  independent segment.  A long segment is further cut into chunks of
+ *  about CHUNK_SIZE characters, each of which starts at a known offset
+ *  into the message text following its setting line; since
+ *  Machine.seek finds the rotor positions at any such offset directly,
+ *  the chunks of even a single huge message are independent too.
+ *  Chunks are encoded concurrently, each worker thread using its own
+ *  copy of the machine, and written out in their original order.  At
+ *  most a fixed number of chunks per thread are held in memory at
+ *  once.
+ *  @author Arthur Utnehmer
+ */
+class ParallelEncoder implements MessageReader.Handler {
+
+    /** An encoder running on THREADS threads that applies each setting
+     *  line to a copy of BASE with SETUP, and writes the converted
+     *  messages to OUT. */
+    ParallelEncoder(Machine base, BiConsumer<Machine, String> setUp,
+                    GroupWriter out, int threads) {
+        _setUp = setUp;
+        _out = out;
+        _maxPending = threads * SEGMENTS_PER_THREAD;
+        _workers = ThreadLocal.withInitial(() -> new Worker(base.copy()));
+        _pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "enigma-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        _current = new Segment(null, 0);
+    }
+
+    @Override
+    public void setting(String line) throws IOException {
+        submit(_current);
+        _current = new Segment(line, 0);
+    }
+
+    @Override
+    public void message(char[] msg, int off, int len) throws IOException {
+        _current.append(msg, off, len);
+        if (_current.length() >= CHUNK_SIZE) {
+            Segment full = _current;
+            submit(full);
+            _current = new Segment(full.settings(),
+                                   full.offset() + full.length());
+        }
+    }
+
+    @Override
+    public void endLine() {
+        _current.endLine();
+    }
+
+    /** Encode and write out everything not yet written, and stop my
+     *  worker threads. */
+    void finish() throws IOException {
+        try {
+            submit(_current);
+            _current = null;
+            while (!_pending.isEmpty()) {
+                writeNext();
+            }
+        } finally {
+            _pool.shutdownNow();
+        }
+    }
+
+    /** Queue SEGMENT for encoding, first writing out the oldest pending
+     *  segment if too many are in memory. */
+    private void submit(Segment segment) throws IOException {
+        if (segment.settings() == null && segment.lines() == 0
+            && segment.length() == 0) {
+            return;
+        }
+        if (_pending.size() >= _maxPending) {
+            writeNext();
+        }
+        _pending.add(_pool.submit(() -> encode(segment)));
+    }
+
+    /** Convert SEGMENT in place with this thread's machine, and return
+     *  it.  The machine is set up afresh only if it last converted a
+     *  segment with different settings. */
+    private Segment encode(Segment segment) {
+        if (segment.settings() == null) {
+            if (segment.length() > 0) {
+                throw error("message appears before any setting line");
+            }
+            return segment;
+        }
+        Worker worker = _workers.get();
+        if (worker._settings != segment.settings()) {
+            worker._settings = null;
+            _setUp.accept(worker._machine, segment.settings());
+            worker._settings = segment.settings();
+        }
+        worker._machine.seek(segment.offset());
+        worker._machine.convert(segment.text(), 0, segment.length(),
+                segment.text(), 0);
+        return segment;
+    }
+
+    /** Wait for the oldest pending segment to be encoded and write it
+     *  out. */
+    private void writeNext() throws IOException {
+        Segment segment;
+        try {
+            segment = _pending.remove().get();
+        } catch (InterruptedException excp) {
+            throw error("interrupted while encoding");
+        } catch (ExecutionException excp) {
+            Throwable cause = excp.getCause();
+            if (cause instanceof EnigmaException) {
+                throw (EnigmaException) cause;
+            }
+            throw error("malformed input (%s)", cause);
+        }
+        char[] text = segment.text();
+        int start = 0;
+        for (int x = 0; x < segment.lines(); x++) {
+            int end = segment.lineEnd(x);
+            _out.write(text, start, end - start);
+            _out.endLine();
+            start = end;
+        }
+        _out.write(text, start, segment.length() - start);
+    }
+
+    /** A worker thread's machine and the setting line last applied to
+     *  it. */
+    private static class Worker {
+
+        /** A worker using MACHINE, not yet set up. */
+        Worker(Machine machine) {
+            _machine = machine;
+        }
+
+        /** The worker's own machine. */
+        private final Machine _machine;
+
+        /** The setting line last applied to _machine, or null. */
+        private String _settings;
+    }
+
+    /** A setting line and the message text that follows it, or a
+     *  chunk of that text.  A chunk's last line may continue in the next
+     *  chunk. */
+    private static class Segment {
+
+        /** A segment following setting line SETTINGS, or the start of the
+         *  input if SETTINGS is null, whose text begins OFFSET message
+         *  characters after that point. */
+        Segment(String settings, long offset) {
+            _settings = settings;
+            _offset = offset;
+        }
+
+        /** Append the LEN characters of MSG starting at OFF to the
+         *  current line. */
+        void append(char[] msg, int off, int len) {
+            if (_length + len > _text.length) {
+                _text = Arrays.copyOf(_text,
+                        Math.max(_text.length * 2, _length + len));
+            }
+            System.arraycopy(msg, off, _text, _length, len);
+            _length += len;
+        }
+
+        /** End the current line. */
+        void endLine() {
+            if (_lines == _lineEnds.length) {
+                _lineEnds = Arrays.copyOf(_lineEnds, _lines * 2);
+            }
+            _lineEnds[_lines] = _length;
+            _lines += 1;
+        }
+
+        /** Return my setting line, or null. */
+        String settings() {
+            return _settings;
+        }
+
+        /** Return the number of message characters between my setting
+         *  line and the start of my text. */
+        long offset() {
+            return _offset;
+        }
+
+        /** Return my message characters, all lines run together. */
+        char[] text() {
+            return _text;
+        }
+
+        /** Return the number of message characters. */
+        int length() {
+            return _length;
+        }
+
+        /** Return the number of message lines. */
+        int lines() {
+            return _lines;
+        }
+
+        /** Return the offset in text() just past complete line K. */
+        int lineEnd(int k) {
+            return _lineEnds[k];
+        }
+
+        /** My setting line, or null. */
+        private final String _settings;
+
+        /** Message characters preceding my text. */
+        private final long _offset;
+
+        /** Message characters. */
+        private char[] _text = new char[INITIAL_TEXT];
+
+        /** Number of message characters. */
+        private int _length;
+
+        /** Offsets just past each line. */
+        private int[] _lineEnds = new int[INITIAL_LINES];
+
+        /** Number of message lines. */
+        private int _lines;
+    }
+
+    /** Initial capacity of a segment's text. */
+    private static final int INITIAL_TEXT = 256;
+
+    /** Initial capacity of a segment's line table. */
+    private static final int INITIAL_LINES = 8;
+
+    /** Number of message characters at which a segment is cut into a
+     *  chunk. */
+    static final int CHUNK_SIZE = 1 << 16;
+
+    /** Number of segments per thread that may be pending at once. */
+    private static final int SEGMENTS_PER_THREAD = 16;
+
+    /** Applies a setting line to a machine. */
+    private final BiConsumer<Machine, String> _setUp;
+
+    /** Destination of converted messages. */
+    private final GroupWriter _out;
+
+    /** Maximum number of pending segments. */
+    private final int _maxPending;
+
+    /** Each worker thread's own machine. */
+    private final ThreadLocal<Worker> _workers;
+
+    /** Worker threads. */
+    private final ExecutorService _pool;
+
+    /** Segments submitted but not yet written, oldest first. */
+    private final ArrayDeque<Future<Segment>> _pending = new ArrayDeque<>();
+
+    /** Segment being read. */
+    private Segment _current;
+
+}
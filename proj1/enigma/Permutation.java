@@ -1,8 +1,9 @@
 package enigma;
 
-import java.util.HashMap;
 import java.util.Scanner;
 
+import static enigma.EnigmaException.*;
+
 /** Represents a permutation of a range of integers starting at 0 corresponding
  *  to the characters of an alphabet.
  *  @author Arthur Utnehmer on 3/2/2022
@@ -18,9 +19,51 @@ class Permutation {
      *  Whitespace is ignored. */
     Permutation(String cycles, Alphabet alphabet) {
         _alphabet = alphabet;
+        _size = alphabet.size();
+        _forward = new int[_size];
+        _inverse = new int[_size];
+        for (int x = 0; x < _size; x++) {
+            _forward[x] = x;
+            _inverse[x] = x;
+        }
         mapBiDirectional(cycles);
         _cycles = cycles;
+        _forwardChars = new char[_size];
+        _inverseChars = new char[_size];
+        for (int x = 0; x < _size; x++) {
+            _forwardChars[x] = alphabet.toChar(_forward[x]);
+            _inverseChars[x] = alphabet.toChar(_inverse[x]);
+        }
+    }
 
+    /** Set this Permutation to the one mapping each index X of ALPHABET to
+     *  FORWARD[X], which must be a permutation of 0 .. ALPHABET.size()-1.
+     *  CYCLES is the same permutation in cycle notation, kept only for
+     *  getCycles; it is not parsed. */
+    Permutation(int[] forward, String cycles, Alphabet alphabet) {
+        _alphabet = alphabet;
+        _size = alphabet.size();
+        if (forward.length != _size) {
+            throw error("permutation table has the wrong size");
+        }
+        _forward = forward.clone();
+        _inverse = new int[_size];
+        boolean[] seen = new boolean[_size];
+        for (int x = 0; x < _size; x++) {
+            int y = _forward[x];
+            if (y < 0 || y >= _size || seen[y]) {
+                throw error("permutation table is not a permutation");
+            }
+            seen[y] = true;
+            _inverse[y] = x;
+        }
+        _cycles = cycles;
+        _forwardChars = new char[_size];
+        _inverseChars = new char[_size];
+        for (int x = 0; x < _size; x++) {
+            _forwardChars[x] = alphabet.toChar(_forward[x]);
+            _inverseChars[x] = alphabet.toChar(_inverse[x]);
+        }
     }
 
     /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
@@ -38,35 +81,43 @@ class Permutation {
         map(cyclesToMap);
     }
 
-    /** General map that takes in scanner and maps each permutation.
-     * @param cyclesToMap Maps the cycles from scanner to hashmap. */
+    /** General map that takes in scanner and compiles each cycle into the
+     *  forward and inverse tables.
+     * @param cyclesToMap Scanner producing one cycle per token. */
     private void map(Scanner cyclesToMap) {
+        boolean[] seen = new boolean[_size];
         while (cyclesToMap.hasNext()) {
             char[] cycleToEncode = cyclesToMap.next().toCharArray();
-            for (int x = 0; x < cycleToEncode.length - 1; x++) {
-                forwardDirectionMap.put(cycleToEncode[x],
-                        cycleToEncode[(x + 1)]);
-                reverseDirectionMap.put(cycleToEncode[x + 1],
-                        cycleToEncode[(x)]);
+            int[] indices = new int[cycleToEncode.length];
+            for (int x = 0; x < cycleToEncode.length; x++) {
+                int index = _alphabet.toInt(cycleToEncode[x]);
+                if (index < 0) {
+                    throw error("character %c is not in the alphabet",
+                            cycleToEncode[x]);
+                }
+                if (seen[index]) {
+                    throw error("character %c appears in more than one "
+                            + "cycle position", cycleToEncode[x]);
+                }
+                seen[index] = true;
+                indices[x] = index;
             }
-            forwardDirectionMap.put(cycleToEncode[cycleToEncode.length - 1],
-                    cycleToEncode[0]);
-            reverseDirectionMap.put(cycleToEncode[0],
-                    cycleToEncode[cycleToEncode.length - 1]);
-        }
-
-        for (Character element: _alphabet.getAlphabet()) {
-            if (forwardDirectionMap.get(element) == null) {
-                forwardDirectionMap.put(element, element);
-                reverseDirectionMap.put(element, element);
+            for (int x = 0; x < indices.length; x++) {
+                int next = indices[(x + 1) % indices.length];
+                _forward[indices[x]] = next;
+                _inverse[next] = indices[x];
             }
         }
     }
+
     /** Return the value of P modulo the size of this permutation. */
     final int wrap(int p) {
-        int r = p % size();
+        if (p >= 0 && p < _size) {
+            return p;
+        }
+        int r = p % _size;
         if (r < 0) {
-            r += size();
+            r += _size;
         }
         return r;
     }
@@ -75,14 +126,13 @@ class Permutation {
     public void checkMappingBothWays() {
         System.out.println("------------------------"
                 + "---------------------------------");
-        for (Character element:_alphabet.getAlphabet()) {
-            System.out.print(element + "->"
-                    + forwardDirectionMap.get(element));
+        for (int x = 0; x < _size; x++) {
+            System.out.print(_alphabet.toChar(x) + "->"
+                    + _forwardChars[x]);
             System.out.println(" "
-                    + forwardDirectionMap.get(element)
+                    + _forwardChars[x]
                     +  "->"
-                    + reverseDirectionMap.get(
-                            forwardDirectionMap.get(element)));
+                    + _inverseChars[_forward[x]]);
         }
         System.out.println("--------------------------"
                 + "-------------------------------");
@@ -90,32 +140,30 @@ class Permutation {
 
     /** Returns the size of the alphabet I permute. */
     int size() {
-        return _alphabet.size();
+        return _size;
     }
 
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        return _alphabet.toInt(
-                forwardDirectionMap.get(_alphabet.toChar((wrap(p)))));
+        return _forward[wrap(p)];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        return _alphabet.toInt(
-                reverseDirectionMap.get(_alphabet.toChar((wrap(c)))));
+        return _inverse[wrap(c)];
     }
 
     /** Return the result of applying this permutation to the index of P
      *  in ALPHABET, and converting the result to a character of ALPHABET. */
     char permute(char p) {
-        return forwardDirectionMap.get(p);
+        return _forwardChars[_alphabet.toInt(p)];
     }
 
     /** Return the result of applying the inverse of this permutation to C. */
     char invert(char c) {
-        return reverseDirectionMap.get(c);
+        return _inverseChars[_alphabet.toInt(c)];
     }
 
     /** Return the alphabet used to initialize this Permutation. */
@@ -128,11 +176,45 @@ class Permutation {
         return _cycles;
     }
 
+    /** Return the compiled forward table, indexed by alphabet position.
+     *  The array is shared; callers must not modify it. */
+    int[] forwardTable() {
+        return _forward;
+    }
+
+    /** Return the compiled inverse table, indexed by alphabet position.
+     *  The array is shared; callers must not modify it. */
+    int[] inverseTable() {
+        return _inverse;
+    }
+
+    /** Return true iff this permutation maps every character to
+     *  itself. */
+    boolean identity() {
+        for (int x = 0; x < _size; x++) {
+            if (_forward[x] != x) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return true iff this permutation is its own inverse, as every
+     *  plugboard and reflector is. */
+    boolean involution() {
+        for (int x = 0; x < _size; x++) {
+            if (_forward[_forward[x]] != x) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
-        for (Character element: _alphabet.getAlphabet()) {
-            if (forwardDirectionMap.get(element) == element) {
+        for (int x = 0; x < _size; x++) {
+            if (_forward[x] == x) {
                 return false;
             }
         }
@@ -142,13 +224,20 @@ class Permutation {
     /** Alphabet of this permutation. */
     private Alphabet _alphabet;
 
-    /** Mapping for converting forward. */
-    private HashMap<Character, Character> forwardDirectionMap =
-            new HashMap<Character, Character>();
+    /** Size of my alphabet, cached for the hot path. */
+    private final int _size;
+
+    /** Forward mapping: _forward[i] is the index that index I maps to. */
+    private final int[] _forward;
+
+    /** Inverse mapping: _inverse[_forward[i]] == i. */
+    private final int[] _inverse;
+
+    /** Forward mapping as characters, indexed by alphabet position. */
+    private final char[] _forwardChars;
 
-    /** Mapping for converting backwards. */
-    private HashMap<Character, Character> reverseDirectionMap =
-            new HashMap<Character, Character>();
+    /** Inverse mapping as characters, indexed by alphabet position. */
+    private final char[] _inverseChars;
 
     /** String of cycles for this permutation. */
     private String _cycles;
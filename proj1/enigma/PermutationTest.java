@@ -128,4 +128,37 @@ public class PermutationTest {
         perm = new Permutation("(ABCD)", new Alphabet("ABCD"));
         assertTrue(perm.derangement());
     }
+
+    @Test
+    public void identityAndInvolution() {
+        perm = new Permutation("", UPPER);
+        assertTrue(perm.identity());
+        assertTrue(perm.involution());
+
+        perm = new Permutation("(A) (B)", UPPER);
+        assertTrue(perm.identity());
+
+        perm = new Permutation("(HQ) (EX) (IP)", UPPER);
+        assertFalse(perm.identity());
+        assertTrue(perm.involution());
+
+        perm = new Permutation("(HQE)", UPPER);
+        assertFalse(perm.involution());
+    }
+
+    @Test
+    public void compiledTablesAreInverse() {
+        perm = new Permutation(NAVALA.get("IV"), UPPER);
+        int[] forward = perm.forwardTable();
+        int[] inverse = perm.inverseTable();
+        for (int i = 0; i < perm.size(); i += 1) {
+            assertEquals(i, inverse[forward[i]]);
+            assertEquals(forward[i], perm.permute(i + perm.size()));
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void characterNotInAlphabet() {
+        perm = new Permutation("(AB) (C-)", UPPER);
+    }
 }
@@ -0,0 +1,25 @@
+package enigma;
+
+import java.io.PrintStream;
+
+/** A tracer that prints each conversion to a stream as soon as it
+ *  completes, as the --verbose option does.
+ *  @author Arthur Utnehmer
+ */
+class PrintTracer extends LineTracer {
+
+    /** A tracer printing to OUT. */
+    PrintTracer(PrintStream out) {
+        _out = out;
+    }
+
+    @Override
+    void emit(CharSequence line) {
+        _out.append(line);
+        _out.println();
+    }
+
+    /** Destination of the trace. */
+    private final PrintStream _out;
+
+}
@@ -0,0 +1,55 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static enigma.EnigmaException.*;
+
+/** A tracer that remembers only the most recent conversions, so that
+ *  tracing can stay on for long runs and be inspected after a failure.
+ *  @author Arthur Utnehmer
+ */
+class RingBufferTracer extends LineTracer {
+
+    /** A tracer remembering the last LINES conversions. */
+    RingBufferTracer(int lines) {
+        if (lines <= 0) {
+            throw error("ring buffer needs at least one line");
+        }
+        _lines = new StringBuilder[lines];
+        for (int x = 0; x < lines; x += 1) {
+            _lines[x] = new StringBuilder();
+        }
+    }
+
+    @Override
+    void emit(CharSequence line) {
+        StringBuilder slot = _lines[(int) (_count % _lines.length)];
+        slot.setLength(0);
+        slot.append(line);
+        _count += 1;
+    }
+
+    /** Return the remembered conversions, oldest first. */
+    List<String> lines() {
+        int kept = (int) Math.min(_count, _lines.length);
+        List<String> result = new ArrayList<>(kept);
+        for (long x = _count - kept; x < _count; x += 1) {
+            result.add(_lines[(int) (x % _lines.length)].toString());
+        }
+        return result;
+    }
+
+    /** Return the total number of conversions traced. */
+    long count() {
+        return _count;
+    }
+
+    /** Reused line buffers, indexed by conversion number modulo their
+     *  number. */
+    private final StringBuilder[] _lines;
+
+    /** Number of conversions traced so far. */
+    private long _count;
+
+}
@@ -62,14 +62,19 @@ class Rotor {
     /** Return the conversion of P (an integer in the range 0..size()-1)
      *  according to my permutation. */
     int convertForward(int p) {
-        int result = _permutation.permute(_permutation.wrap(p + _setting));
-        result = (result - setting());
-        if (result < 0) {
-            return (permutation().size()) + result;
-        }
+        return convertForward(p, _setting);
+    }
 
-        if (Main.verbose()) {
-            System.err.printf("%c -> ", alphabet().toChar(result));
+    /** Return the conversion of P (an integer in the range 0..size()-1)
+     *  according to my permutation, as if my setting were SETTING. */
+    int convertForward(int p, int setting) {
+        if (_forwardTable != null) {
+            return _forwardTable[setting][p];
+        }
+        int result = _permutation.permute(_permutation.wrap(p + setting))
+                - setting;
+        if (result < 0) {
+            return result + _permutation.size();
         }
         return result;
     }
@@ -77,26 +82,76 @@ class Rotor {
     /** Return the conversion of E (an integer in the range 0..size()-1)
      *  according to the inverse of my permutation. */
     int convertBackward(int e) {
-        int result;
-        if (e + _setting > permutation().size() - 1) {
-            result = _permutation.invert(_permutation.wrap(e + _setting));
-        } else {
-            result = _permutation.invert(_permutation.wrap(e + _setting));
-        }
-
-        result = (result - setting());
+        return convertBackward(e, _setting);
+    }
 
+    /** Return the conversion of E (an integer in the range 0..size()-1)
+     *  according to the inverse of my permutation, as if my setting were
+     *  SETTING. */
+    int convertBackward(int e, int setting) {
+        if (_backwardTable != null) {
+            return _backwardTable[setting][e];
+        }
+        int result = _permutation.invert(_permutation.wrap(e + setting))
+                - setting;
         if (result < 0) {
-            return (_permutation.size()) + result;
+            return result + _permutation.size();
         }
+        return result;
+    }
 
-
-        if (Main.verbose()) {
-            System.err.printf("%c -> ", alphabet().toChar(result));
+    /** Precompute my effective forward and backward mappings at every
+     *  setting, so that convertForward and convertBackward become a single
+     *  table lookup.  Rotors whose alphabet is larger than MAXSIZE keep
+     *  using modular arithmetic, bounding the tables to MAXSIZE squared
+     *  entries each. */
+    void compile(int maxSize) {
+        int size = size();
+        if (size > maxSize) {
+            _forwardTable = _backwardTable = null;
+            return;
         }
+        if (_forwardTable != null) {
+            return;
+        }
+        int[] forward = _permutation.forwardTable();
+        int[] inverse = _permutation.inverseTable();
+        int[][] forwardTable = new int[size][size];
+        int[][] backwardTable = new int[size][size];
+        for (int s = 0; s < size; s++) {
+            for (int p = 0; p < size; p++) {
+                int in = p + s < size ? p + s : p + s - size;
+                int out = forward[in] - s;
+                forwardTable[s][p] = out < 0 ? out + size : out;
+                out = inverse[in] - s;
+                backwardTable[s][p] = out < 0 ? out + size : out;
+            }
+        }
+        _backwardTable = backwardTable;
+        _forwardTable = forwardTable;
+    }
+
+    /** Return a new rotor like me, at my current setting, that shares my
+     *  permutation and compiled tables (which are never modified) but can
+     *  be moved independently. */
+    Rotor copy() {
+        return copyState(new Rotor(name(), permutation()));
+    }
+
+    /** Give RESULT my setting and compiled tables, and return it. */
+    <R extends Rotor> R copyState(R result) {
+        Rotor rotor = result;
+        rotor._setting = _setting;
+        rotor._forwardTable = _forwardTable;
+        rotor._backwardTable = _backwardTable;
         return result;
     }
 
+    /** Return true iff compile() has built lookup tables for me. */
+    boolean compiled() {
+        return _forwardTable != null;
+    }
+
     /** Returns the positions of the notches, as a string giving the letters
      *  on the ring at which they occur. */
     String notches() {
@@ -148,5 +203,13 @@ class Rotor {
     /** Setting of rotor. */
     private int _setting;
 
+    /** _forwardTable[s][p] is convertForward(p) at setting s, or null if
+     *  I have not been compiled. */
+    private int[][] _forwardTable;
+
+    /** _backwardTable[s][e] is convertBackward(e) at setting s, or null if
+     *  I have not been compiled. */
+    private int[][] _backwardTable;
+
 
 }
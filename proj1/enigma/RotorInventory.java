@@ -0,0 +1,96 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static enigma.EnigmaException.*;
+
+/** The rotors available to a machine, grouped by the slots they may
+ *  occupy, for key searches that try every order of them.  Slot 0 holds
+ *  a reflector, the next numRotors - numPawls - 1 slots hold fixed
+ *  rotors, and the last numPawls slots hold moving rotors.  The
+ *  inventory keeps its own copies of the rotors, at setting 0, which
+ *  are used only through their explicit-setting conversions and so may
+ *  be shared by any number of threads.
+ *  @author Arthur Utnehmer
+ */
+final class RotorInventory {
+
+    /** The inventory of the available rotors of MACHINE, with its
+     *  numbers of slots and pawls.  Every reflector must be an
+     *  involution, as the searches assume. */
+    RotorInventory(Machine machine) {
+        _alphabet = machine.alphabet();
+        _numRotors = machine.numRotors();
+        _numPawls = machine.numPawls();
+        for (Rotor rotor : machine.getRotorList()) {
+            Rotor copy = rotor.copy();
+            copy.set(0);
+            if (rotor instanceof Reflector) {
+                if (!rotor.permutation().involution()) {
+                    throw error("reflector %s is not an involution",
+                                rotor.name());
+                }
+                _reflectors.add(copy);
+            } else if (rotor.rotates()) {
+                _moving.add(copy);
+            } else {
+                _fixed.add(copy);
+            }
+        }
+    }
+
+    /** Return the common alphabet of the rotors. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of rotor slots. */
+    int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return every assignment of distinct available rotors to the
+     *  slots, reflector first. */
+    List<Rotor[]> orders() {
+        ArrayList<Rotor[]> result = new ArrayList<Rotor[]>();
+        for (Rotor reflector : _reflectors) {
+            Rotor[] order = new Rotor[_numRotors];
+            order[0] = reflector;
+            fill(order, 1, result);
+        }
+        return result;
+    }
+
+    /** Fill ORDER[K ..] with distinct rotors of the kinds their slots
+     *  take, adding each completed order to RESULT. */
+    private void fill(Rotor[] order, int k, List<Rotor[]> result) {
+        if (k == order.length) {
+            result.add(order.clone());
+            return;
+        }
+        List<Rotor> choices =
+            k < _numRotors - _numPawls ? _fixed : _moving;
+        for (Rotor rotor : choices) {
+            boolean used = false;
+            for (int j = 1; j < k && !used; j++) {
+                used = order[j] == rotor;
+            }
+            if (!used) {
+                order[k] = rotor;
+                fill(order, k + 1, result);
+            }
+        }
+    }
+
+    /** Common alphabet of the rotors. */
+    private final Alphabet _alphabet;
+
+    /** Numbers of rotor slots and pawls. */
+    private final int _numRotors, _numPawls;
+
+    /** Copies of the available rotors, by kind. */
+    private final ArrayList<Rotor> _reflectors = new ArrayList<Rotor>(),
+        _fixed = new ArrayList<Rotor>(), _moving = new ArrayList<Rotor>();
+
+}
@@ -0,0 +1,137 @@
+package enigma;
+
+import java.util.Arrays;
+
+/** Table-driven conversion through one order of rotors, without a
+ *  plugboard, for key searches.  Every rotor's mapping at every setting
+ *  is tabulated once, in both directions.  The mapping through
+ *  everything but the fast rotor (the slower rotors forward, the
+ *  reflector, and the slower rotors backward) changes only when a
+ *  slower rotor moves, so callers keep it as a "middle" table, filled by
+ *  fillMiddle and keyed by middleKey, and convert with three lookups.
+ *  A scrambler is never modified after construction, so it may be
+ *  shared by any number of threads.
+ *  @author Arthur Utnehmer
+ */
+final class Scrambler {
+
+    /** A scrambler for ROTORS, reflector first, over an alphabet of SIZE
+     *  characters.  There must be at least two rotors. */
+    Scrambler(Rotor[] rotors, int size) {
+        _rotors = rotors.clone();
+        _size = size;
+        _fast = rotors.length - 1;
+        _model = new SteppingModel(Arrays.asList(rotors), size);
+        _forward = new int[rotors.length][][];
+        _backward = new int[rotors.length][][];
+        for (int k = 0; k < rotors.length; k++) {
+            int settings = k == 0 ? 1 : size;
+            _forward[k] = new int[settings][size];
+            _backward[k] = new int[settings][size];
+            for (int s = 0; s < settings; s++) {
+                for (int p = 0; p < size; p++) {
+                    _forward[k][s][p] = rotors[k].convertForward(p, s);
+                    _backward[k][s][p] = rotors[k].convertBackward(p, s);
+                }
+            }
+        }
+    }
+
+    /** Return the number of rotors, counting the reflector. */
+    int numRotors() {
+        return _rotors.length;
+    }
+
+    /** Return the names of my rotors, reflector first. */
+    String[] names() {
+        String[] result = new String[_rotors.length];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = _rotors[k].name();
+        }
+        return result;
+    }
+
+    /** Return the stepping model of my rotors. */
+    SteppingModel stepping() {
+        return _model;
+    }
+
+    /** Advance START, the starting positions of a search, to the next
+     *  positions that have the same leftmost (slowest) non-reflector
+     *  rotor position, the fast rotor varying fastest.  Returns false,
+     *  leaving START unchanged, if there are none. */
+    boolean nextStart(int[] start) {
+        int k = _fast;
+        while (k >= 2 && start[k] == _size - 1) {
+            k -= 1;
+        }
+        if (k < 2) {
+            return false;
+        }
+        start[k] += 1;
+        for (int j = k + 1; j <= _fast; j++) {
+            start[j] = 0;
+        }
+        return true;
+    }
+
+    /** Return a key identifying the middle table at positions P: the
+     *  positions of the rotors between the reflector and the fast rotor
+     *  as a mixed-radix number.  It is never negative. */
+    long middleKey(int[] p) {
+        long key = 0;
+        for (int k = 1; k < _fast; k++) {
+            key = key * _size + p[k];
+        }
+        return key;
+    }
+
+    /** Fill MIDDLE with the mapping through all but the fast rotor at
+     *  positions P. */
+    void fillMiddle(int[] middle, int[] p) {
+        for (int c = 0; c < middle.length; c++) {
+            int r = c;
+            for (int k = _fast - 1; k > 0; k--) {
+                r = _forward[k][p[k]][r];
+            }
+            r = _forward[0][0][r];
+            for (int k = 1; k < _fast; k++) {
+                r = _backward[k][p[k]][r];
+            }
+            middle[c] = r;
+        }
+    }
+
+    /** Return the conversion of C with the fast rotor at setting FAST,
+     *  where MIDDLE was filled for the positions of the other rotors. */
+    int convert(int[] middle, int fast, int c) {
+        return _backward[_fast][fast][middle[_forward[_fast][fast][c]]];
+    }
+
+    /** Fill TABLE with the whole conversion at positions P, where MIDDLE
+     *  was filled for P. */
+    void fillTable(int[] table, int[] middle, int[] p) {
+        int[] forward = _forward[_fast][p[_fast]];
+        int[] backward = _backward[_fast][p[_fast]];
+        for (int c = 0; c < table.length; c++) {
+            table[c] = backward[middle[forward[c]]];
+        }
+    }
+
+    /** The rotors, reflector first. */
+    private final Rotor[] _rotors;
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** Index of the fast rotor. */
+    private final int _fast;
+
+    /** Stepping model of _rotors. */
+    private final SteppingModel _model;
+
+    /** _forward[k][s][p] and _backward[k][s][p] are rotor #K's
+     *  conversions of P at setting S. */
+    private final int[][][] _forward, _backward;
+
+}
@@ -0,0 +1,115 @@
+package enigma;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static enigma.EnigmaException.*;
+
+/** Pieces shared by the key searches (CribSearch and KeySearch): the
+ *  formatting of the settings they report, their thread pools, and the
+ *  loading of their configurations.
+ *  @author Arthur Utnehmer
+ */
+final class SearchSupport {
+
+    /** Not instantiable. */
+    private SearchSupport() {
+    }
+
+    /** Return the setting line, in the form Main accepts, for rotors
+     *  named ROTORS (reflector first) at POSITIONS with plugboard
+     *  PLUGBOARD in cycle notation. */
+    static String setting(String[] rotors, String positions,
+                          String plugboard) {
+        StringBuilder result = new StringBuilder("*");
+        for (String name : rotors) {
+            result.append(' ').append(name);
+        }
+        result.append(' ').append(positions);
+        if (!plugboard.isEmpty()) {
+            result.append(' ').append(plugboard);
+        }
+        return result.toString();
+    }
+
+    /** Return the characters of ALPHABET at the indices START[1 ..],
+     *  the rotor positions (excluding the reflector), as for
+     *  Machine.setRotors. */
+    static String positions(Alphabet alphabet, int[] start) {
+        StringBuilder result = new StringBuilder();
+        for (int k = 1; k < start.length; k++) {
+            result.append(alphabet.toChar(start[k]));
+        }
+        return result.toString();
+    }
+
+    /** Return in cycle notation the pairs of PLUG, in which PLUG[x] is
+     *  the partner of index X of ALPHABET, or X or -1 if it has none. */
+    static String plugboard(Alphabet alphabet, int[] plug) {
+        StringBuilder result = new StringBuilder();
+        for (int x = 0; x < plug.length; x++) {
+            if (plug[x] > x) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append('(').append(alphabet.toChar(x))
+                    .append(alphabet.toChar(plug[x])).append(')');
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return a fixed pool of THREADS daemon threads named NAME. */
+    static ExecutorService pool(int threads, String name) {
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Run TASKS on POOL and return their results in order.  An
+     *  EnigmaException from a task is rethrown; any other failure, or
+     *  an interruption, is reported as an error of WHAT. */
+    static <T> List<T> invokeAll(ExecutorService pool,
+                                 List<Callable<T>> tasks, String what) {
+        ArrayList<T> result = new ArrayList<T>();
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw error("%s interrupted", what);
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof EnigmaException) {
+                throw (EnigmaException) excp.getCause();
+            }
+            throw error("%s failed: %s", what, excp.getCause());
+        }
+        return result;
+    }
+
+    /** Return the machine described by the configuration file NAME. */
+    static Machine readConfig(String name) {
+        try (Reader config =
+                 new InputStreamReader(new FileInputStream(name))) {
+            return new ConfigParser(config, CONFIG_BUFFER_SIZE).parse();
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Size in characters of the configuration reader's buffer. */
+    private static final int CONFIG_BUFFER_SIZE = 1 << 16;
+
+}
@@ -0,0 +1,181 @@
+package enigma;
+
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** A bounded map from packed rotor states to composite encoding tables,
+ *  evicting the least recently used entry when full.  Keys are primitive
+ *  longs, so lookups do not allocate.
+ *  @author Arthur Utnehmer
+ */
+class StateCache {
+
+    /** A cache holding at most CAPACITY tables, where
+     *  0 < CAPACITY <= MAX_CAPACITY. */
+    StateCache(int capacity) {
+        if (capacity <= 0) {
+            throw error("state cache capacity must be positive");
+        }
+        if (capacity > MAX_CAPACITY) {
+            throw error("state cache capacity must be at most %d",
+                        MAX_CAPACITY);
+        }
+        _capacity = capacity;
+        _keys = new long[capacity];
+        _tables = new int[capacity][];
+        _prev = new int[capacity];
+        _next = new int[capacity];
+        int slots = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        _slots = new int[Math.max(slots, 2)];
+        _mask = _slots.length - 1;
+        clear();
+    }
+
+    /** Return the table stored under KEY, marking it most recently used,
+     *  or null if there is none. */
+    int[] get(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        int entry = _slots[slot] - 1;
+        if (entry != _head) {
+            unlink(entry);
+            pushFront(entry);
+        }
+        return _tables[entry];
+    }
+
+    /** Store TABLE under KEY, which must not already be present, evicting
+     *  the least recently used table if I am full. */
+    void put(long key, int[] table) {
+        int entry;
+        if (_size < _capacity) {
+            entry = _size;
+            _size += 1;
+        } else {
+            entry = _tail;
+            unlink(entry);
+            remove(find(_keys[entry]));
+        }
+        _keys[entry] = key;
+        _tables[entry] = table;
+        pushFront(entry);
+        int slot = home(key);
+        while (_slots[slot] != 0) {
+            slot = (slot + 1) & _mask;
+        }
+        _slots[slot] = entry + 1;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_slots, 0);
+        Arrays.fill(_tables, null);
+        _size = 0;
+        _head = _tail = -1;
+    }
+
+    /** Return the number of tables I hold. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the maximum number of tables I hold. */
+    int capacity() {
+        return _capacity;
+    }
+
+    /** Return the index slot holding KEY, or -1. */
+    private int find(long key) {
+        int slot = home(key);
+        while (_slots[slot] != 0) {
+            if (_keys[_slots[slot] - 1] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & _mask;
+        }
+        return -1;
+    }
+
+    /** Empty index slot SLOT, shifting later members of its probe run
+     *  back so that lookups never stop early. */
+    private void remove(int slot) {
+        int hole = slot;
+        int probe = (slot + 1) & _mask;
+        while (_slots[probe] != 0) {
+            int home = home(_keys[_slots[probe] - 1]);
+            if (((probe - home) & _mask) >= ((probe - hole) & _mask)) {
+                _slots[hole] = _slots[probe];
+                hole = probe;
+            }
+            probe = (probe + 1) & _mask;
+        }
+        _slots[hole] = 0;
+    }
+
+    /** Return the home index slot of KEY. */
+    private int home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & _mask;
+    }
+
+    /** Detach ENTRY from the recency list. */
+    private void unlink(int entry) {
+        int p = _prev[entry], n = _next[entry];
+        if (p >= 0) {
+            _next[p] = n;
+        } else {
+            _head = n;
+        }
+        if (n >= 0) {
+            _prev[n] = p;
+        } else {
+            _tail = p;
+        }
+    }
+
+    /** Make ENTRY the most recently used. */
+    private void pushFront(int entry) {
+        _prev[entry] = -1;
+        _next[entry] = _head;
+        if (_head >= 0) {
+            _prev[_head] = entry;
+        }
+        _head = entry;
+        if (_tail < 0) {
+            _tail = entry;
+        }
+    }
+
+    /** Maximum number of entries. */
+    private final int _capacity;
+
+    /** Keys of the entries. */
+    private final long[] _keys;
+
+    /** Tables of the entries. */
+    private final int[][] _tables;
+
+    /** Recency list: previous (more recent) and next (less recent) entry,
+     *  or -1. */
+    private final int[] _prev, _next;
+
+    /** Open-addressing index from keys to entry number plus one; 0 marks
+     *  an empty slot. */
+    private final int[] _slots;
+
+    /** Index capacity minus one. */
+    private final int _mask;
+
+    /** Number of entries in use. */
+    private int _size;
+
+    /** Most and least recently used entries, or -1 when empty. */
+    private int _head, _tail;
+
+    /** Largest number of tables a cache may hold; the hash index has
+     *  up to twice as many slots. */
+    static final int MAX_CAPACITY = 1 << 24;
+}
@@ -0,0 +1,421 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** The stepping behavior of a particular sequence of inserted rotors,
+ *  used to compute rotor positions many key presses ahead without
+ *  pressing each key.  Positions are given as an array P in which P[K]
+ *  is the setting of rotor #K (rotor #0 being the reflector).
+ *
+ *  On each key press, rotor #K (K > 0) advances iff it is the fast
+ *  rotor, rotor #K+1 is at one of its notches, or rotor #K is at one of
+ *  its notches and rotor #K-1 rotates (the "double step"), exactly as in
+ *  Machine.advanceRotors.  When no rotor has two cyclically adjacent
+ *  notches, the layout is "regular": every rotor then sits on a notch
+ *  for at most one key press at a time, and the positions after N
+ *  presses follow in closed form, rotor by rotor from the fast one, in
+ *  O(numRotors**2) time.  Otherwise, positions are found by stepping,
+ *  with cycle detection so that the time taken is bounded by the state
+ *  period rather than N.
+ *
+ *  When they fit, the positions of all the rotors can also be packed
+ *  into a single long "state", each rotor's position occupying a fixed
+ *  field of bits with the fast rotor's in the lowest bits, and stepped
+ *  by arithmetic on that value.
+ *  @author Arthur Utnehmer
+ */
+class SteppingModel {
+
+    /** The model of ROTORS, inserted in that order, over an alphabet of
+     *  SIZE characters. */
+    SteppingModel(List<Rotor> rotors, int size) {
+        _size = size;
+        _count = rotors.size();
+        _rotates = new boolean[_count];
+        _notch = new boolean[_count][];
+        _notchesBefore = new int[_count][];
+        _open = new int[_count][];
+        _rank = new int[_count][];
+        boolean regular = size >= 2;
+        for (int k = 0; k < _count; k += 1) {
+            Rotor rotor = rotors.get(k);
+            _rotates[k] = rotor.rotates();
+            boolean[] notch = new boolean[size];
+            if (_rotates[k]) {
+                for (char c : rotor.notches().toCharArray()) {
+                    int index = rotor.alphabet().toInt(c);
+                    if (index >= 0) {
+                        notch[index] = true;
+                    }
+                }
+            }
+            _notch[k] = notch;
+            _notchesBefore[k] = new int[size + 1];
+            int[] open = new int[size];
+            int numOpen = 0;
+            _rank[k] = new int[size];
+            for (int q = 0; q < size; q += 1) {
+                _notchesBefore[k][q + 1] = _notchesBefore[k][q]
+                    + (notch[q] ? 1 : 0);
+                if (notch[q] && notch[(q + 1) % size]) {
+                    regular = false;
+                }
+                _rank[k][q] = numOpen;
+                if (!notch[q]) {
+                    open[numOpen] = q;
+                    numOpen += 1;
+                }
+            }
+            _open[k] = Arrays.copyOf(open, numOpen);
+        }
+        _regular = regular;
+        _width = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(
+                              Math.max(size - 1, 0)));
+        _fieldMask = (1L << _width) - 1;
+        _packable = (long) _width * _count < Long.SIZE;
+        _shift = new int[_count];
+        for (int k = 0; k < _count; k += 1) {
+            _shift[k] = _packable ? (_count - 1 - k) * _width : 0;
+        }
+        int fast = _count - 1;
+        if (fast >= 1 && _rotates[fast]) {
+            _quiet = new int[size];
+            for (int q = size - 2; q >= 0; q -= 1) {
+                boolean drives = _rotates[fast - 1] && _notch[fast][q];
+                _quiet[q] = drives ? 0 : _quiet[q + 1] + 1;
+            }
+        } else {
+            _quiet = null;
+        }
+    }
+
+    /** Return true iff positions can be computed in closed form. */
+    boolean regular() {
+        return _regular;
+    }
+
+    /** Return true iff every rotor position fits in a packed state. */
+    boolean packable() {
+        return _packable;
+    }
+
+    /** Return the lowest bit of rotor #K's field in a packed state. */
+    int shift(int k) {
+        return _shift[k];
+    }
+
+    /** Return the position of rotor #K in packed state STATE. */
+    int position(long state, int k) {
+        return (int) ((state >>> _shift[k]) & _fieldMask);
+    }
+
+    /** Return packed state STATE advanced by one key press.  Requires
+     *  packable(). */
+    long step(long state) {
+        int fast = _count - 1;
+        long next = state;
+        for (int k = 1; k <= fast; k += 1) {
+            if (!_rotates[k]) {
+                continue;
+            }
+            int q = position(state, k);
+            if (k == fast || _notch[k + 1][position(state, k + 1)]
+                || (_notch[k][q] && _rotates[k - 1])) {
+                next += q + 1 == _size ? -((long) q << _shift[k])
+                    : 1L << _shift[k];
+            }
+        }
+        return next;
+    }
+
+    /** Return the number N of key presses from packed state STATE in
+     *  each of which only the fast rotor moves, and without wrapping
+     *  around, so that the states after the next N presses are simply
+     *  STATE + 1 through STATE + N.  N is 0 if the next press moves any
+     *  other rotor.  Requires packable(). */
+    int quietSteps(long state) {
+        int fast = _count - 1;
+        if (_quiet == null) {
+            return 0;
+        }
+        for (int k = 1; k < fast; k += 1) {
+            if (_rotates[k]
+                && ((k + 1 < fast && _notch[k + 1][position(state, k + 1)])
+                    || (_notch[k][position(state, k)] && _rotates[k - 1]))) {
+                return 0;
+            }
+        }
+        return _quiet[position(state, fast)];
+    }
+
+    /** Return true iff rotor #K is at a notch in positions P. */
+    boolean atNotch(int[] p, int k) {
+        return _notch[k][p[k]];
+    }
+
+    /** Advance positions P by one key press. */
+    void step(int[] p) {
+        int fast = _count - 1;
+        for (int k = 1; k <= fast; k += 1) {
+            boolean moves = k == fast
+                || _notch[k + 1][p[k + 1]]
+                || (_notch[k][p[k]] && _rotates[k - 1]);
+            if (moves && _rotates[k]) {
+                p[k] = p[k] + 1 == _size ? 0 : p[k] + 1;
+            }
+        }
+    }
+
+    /** Advance each of LANES independent sets of positions by one key
+     *  press, where P[K][L] is the setting of rotor #K in lane L.  This
+     *  is step(int[]) with the loop over lanes innermost, so that each
+     *  pass over a rotor's settings is a run of independent updates. */
+    void step(int[][] p, int lanes) {
+        int fast = _count - 1;
+        for (int k = 1; k <= fast; k += 1) {
+            if (!_rotates[k]) {
+                continue;
+            }
+            int[] q = p[k];
+            if (k == fast) {
+                for (int l = 0; l < lanes; l += 1) {
+                    q[l] = q[l] + 1 == _size ? 0 : q[l] + 1;
+                }
+                continue;
+            }
+            int[] right = p[k + 1];
+            boolean[] rightNotch = _notch[k + 1];
+            boolean[] notch = _notch[k];
+            boolean doubleStep = _rotates[k - 1];
+            for (int l = 0; l < lanes; l += 1) {
+                if (rightNotch[right[l]] || (doubleStep && notch[q[l]])) {
+                    q[l] = q[l] + 1 == _size ? 0 : q[l] + 1;
+                }
+            }
+        }
+    }
+
+    /** Advance positions P by N key presses one at a time, and return
+     *  the number of times each rotor moved, indexed like P. */
+    long[] moves(int[] p, long n) {
+        long[] result = new long[_count];
+        int[] previous = p.clone();
+        for (long t = 0; t < n; t += 1) {
+            step(p);
+            for (int k = 1; k < _count; k += 1) {
+                if (p[k] != previous[k]) {
+                    result[k] += 1;
+                    previous[k] = p[k];
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Advance positions P by N key presses. */
+    void advance(int[] p, long n) {
+        if (n <= 0 || _count < 2) {
+            return;
+        }
+        if (!_regular) {
+            advanceByCycle(p, n);
+        } else if (n <= _count + 1) {
+            for (long t = 0; t < n; t += 1) {
+                step(p);
+            }
+        } else {
+            step(p);
+            advanceRegular(p, n - 1);
+        }
+    }
+
+    /** Return the number of key presses, starting from positions P,
+     *  before the positions first repeat a position seen earlier, and
+     *  the length of the cycle they then enter, as {TAIL, PERIOD}.
+     *  Takes time proportional to TAIL + PERIOD. */
+    long[] cycle(int[] p) {
+        int[] tortoise = p.clone();
+        int[] hare = p.clone();
+        step(hare);
+        long power = 1, period = 1;
+        while (!Arrays.equals(tortoise, hare)) {
+            if (power == period) {
+                System.arraycopy(hare, 0, tortoise, 0, hare.length);
+                power *= 2;
+                period = 0;
+            }
+            step(hare);
+            period += 1;
+        }
+        System.arraycopy(p, 0, tortoise, 0, p.length);
+        System.arraycopy(p, 0, hare, 0, p.length);
+        for (long t = 0; t < period; t += 1) {
+            step(hare);
+        }
+        long tail = 0;
+        while (!Arrays.equals(tortoise, hare)) {
+            step(tortoise);
+            step(hare);
+            tail += 1;
+        }
+        return new long[] { tail, period };
+    }
+
+    /** Advance positions P by N key presses one at a time, but stop
+     *  stepping once the positions are known to be on a cycle and jump
+     *  the rest of the way modulo its length. */
+    private void advanceByCycle(int[] p, long n) {
+        int[] tortoise = p.clone();
+        step(p);
+        long taken = 1, power = 1, period = 1;
+        while (taken < n && !Arrays.equals(tortoise, p)) {
+            if (power == period) {
+                System.arraycopy(p, 0, tortoise, 0, p.length);
+                power *= 2;
+                period = 0;
+            }
+            step(p);
+            period += 1;
+            taken += 1;
+        }
+        for (long t = (n - taken) % period; t > 0; t -= 1) {
+            step(p);
+        }
+    }
+
+    /** Advance positions P by M key presses, assuming a regular layout
+     *  and that P was itself reached by a key press (so that any rotor
+     *  on a notch got there by the last press). */
+    private void advanceRegular(int[] p, long m) {
+        int fast = _count - 1;
+        long[][] pos = new long[_count][];
+        long[][] occupied = new long[_count][];
+        for (int k = fast; k >= 1; k -= 1) {
+            pos[k] = new long[k];
+            occupied[k] = new long[k];
+            for (int d = 0; d < k; d += 1) {
+                long span = Math.max(m - d, 0);
+                if (k == fast) {
+                    runFast(p[k], k, span, pos[k], occupied[k], d);
+                } else {
+                    boolean lastDriven = span > 0
+                        && _notch[k + 1][(int) pos[k + 1][d + 1]];
+                    runDriven(p[k], k, span, occupied[k + 1][d], lastDriven,
+                              pos[k], occupied[k], d);
+                }
+            }
+        }
+        for (int k = 1; k <= fast; k += 1) {
+            p[k] = (int) pos[k][0];
+        }
+    }
+
+    /** Record in POS[D] and OCCUPIED[D] the position of fast rotor #K,
+     *  starting at START, after SPAN presses, and the number of those
+     *  presses at which it sat on a notch. */
+    private void runFast(int start, int k, long span, long[] pos,
+                         long[] occupied, int d) {
+        if (!_rotates[k]) {
+            pos[d] = start;
+            occupied[d] = 0;
+            return;
+        }
+        int[] before = _notchesBefore[k];
+        int rest = (int) (span % _size);
+        long hits = (span / _size) * before[_size];
+        if (start + rest <= _size) {
+            hits += before[start + rest] - before[start];
+        } else {
+            hits += before[_size] - before[start]
+                + before[start + rest - _size];
+        }
+        pos[d] = (start + rest) % _size;
+        occupied[d] = hits;
+    }
+
+    /** Record in POS[D] and OCCUPIED[D] the position of rotor #K, starting
+     *  at START, after SPAN presses during which the rotor to its right sat
+     *  on a notch TRIGGERS times, the last time at the final press iff
+     *  LASTDRIVEN, and the number of those presses at which rotor #K sat
+     *  on a notch. */
+    private void runDriven(int start, int k, long span, long triggers,
+                           boolean lastDriven, long[] pos, long[] occupied,
+                           int d) {
+        if (!_rotates[k] || span == 0) {
+            pos[d] = start;
+            occupied[d] = 0;
+            return;
+        }
+        if (!_rotates[k - 1]) {
+            pos[d] = (start + triggers) % _size;
+            occupied[d] = 0;
+            return;
+        }
+        long selfSteps = 0;
+        int from = start;
+        if (_notch[k][from]) {
+            from = from + 1 == _size ? 0 : from + 1;
+            selfSteps = 1;
+        }
+        int[] open = _open[k];
+        long total = _rank[k][from] + triggers;
+        int to = open[(int) (total % open.length)];
+        long travelled = (total / open.length) * _size + to - from;
+        selfSteps += travelled - triggers;
+        int settled = to;
+        int landing = settled == 0 ? _size - 1 : settled - 1;
+        if (lastDriven && triggers > 0 && _notch[k][landing]) {
+            settled = landing;
+            selfSteps -= 1;
+        }
+        pos[d] = settled;
+        occupied[d] = selfSteps;
+    }
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** Number of rotors. */
+    private final int _count;
+
+    /** _rotates[k] iff rotor #K has a ratchet. */
+    private final boolean[] _rotates;
+
+    /** _notch[k][q] iff rotor #K rotates and has a notch at position Q. */
+    private final boolean[][] _notch;
+
+    /** _notchesBefore[k][q] is the number of notches of rotor #K at
+     *  positions less than Q. */
+    private final int[][] _notchesBefore;
+
+    /** _open[k] lists, in increasing order, the positions of rotor #K
+     *  that are not notches. */
+    private final int[][] _open;
+
+    /** _rank[k][q] is the number of non-notch positions of rotor #K less
+     *  than Q. */
+    private final int[][] _rank;
+
+    /** True iff no rotor has two adjacent notches. */
+    private final boolean _regular;
+
+    /** Number of bits in each field of a packed state. */
+    private final int _width;
+
+    /** The low _width bits. */
+    private final long _fieldMask;
+
+    /** True iff all _count fields fit in a non-negative long. */
+    private final boolean _packable;
+
+    /** _shift[k] is the lowest bit of rotor #K's field. */
+    private final int[] _shift;
+
+    /** _quiet[q] is the number of presses, starting with the fast rotor
+     *  at position Q, before the fast rotor wraps around or reaches a
+     *  notch that drives its neighbor, or null if the fast rotor does not
+     *  rotate. */
+    private final int[] _quiet;
+
+}
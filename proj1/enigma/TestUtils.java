@@ -1,6 +1,7 @@
 package enigma;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 /** Utility definitions for use in unit tests.
  *  @author P. N. Hilfinger
@@ -39,6 +40,81 @@ class TestUtils {
                   + "(PW) (QZ) (SX) (UY)");
     }
 
+    /** The types of the naval rotors, with the notches of the moving
+     *  ones, as in a configuration file. */
+    static final HashMap<String, String> NAVAL_TYPES = new HashMap<>();
+    static {
+        NAVAL_TYPES.put("I", "MQ");
+        NAVAL_TYPES.put("II", "ME");
+        NAVAL_TYPES.put("III", "MV");
+        NAVAL_TYPES.put("IV", "MJ");
+        NAVAL_TYPES.put("V", "MZ");
+        NAVAL_TYPES.put("VI", "MZM");
+        NAVAL_TYPES.put("VII", "MZM");
+        NAVAL_TYPES.put("VIII", "MZM");
+        NAVAL_TYPES.put("Beta", "N");
+        NAVAL_TYPES.put("Gamma", "N");
+        NAVAL_TYPES.put("B", "R");
+        NAVAL_TYPES.put("C", "R");
+    }
+
+    /** Return the naval rotor NAME over ALPHA, in the A setting. */
+    static Rotor navalRotor(Alphabet alpha, String name) {
+        String type = NAVAL_TYPES.get(name);
+        Permutation perm = new Permutation(NAVALA.get(name), alpha);
+        switch (type.charAt(0)) {
+        case 'M':
+            return new MovingRotor(name, perm, type.substring(1));
+        case 'N':
+            return new FixedRotor(name, perm);
+        default:
+            return new Reflector(name, perm);
+        }
+    }
+
+    /** Return new naval rotors named NAMES over ALPHA, keyed by name in
+     *  the order of NAMES. */
+    static LinkedHashMap<String, Rotor> navalRotors(Alphabet alpha,
+                                                   String... names) {
+        LinkedHashMap<String, Rotor> result = new LinkedHashMap<>();
+        for (String name : names) {
+            result.put(name, navalRotor(alpha, name));
+        }
+        return result;
+    }
+
+    /** Return a machine over ALPHA with five slots and three pawls that
+     *  offers the naval rotors B, Beta, III, IV, and I. */
+    static Machine navalMachine(Alphabet alpha) {
+        return new Machine(alpha, 5, 3,
+                           navalRotors(alpha, "B", "Beta", "III", "IV", "I")
+                           .values());
+    }
+
+    /** Return a machine over the upper-case alphabet for the key
+     *  search tests, with slots for ROTORS (the reflector first and the
+     *  last two moving), offering those rotors and the naval rotors I,
+     *  II, and III. */
+    static Machine searchInventory(String... rotors) {
+        Alphabet alpha = new Alphabet(UPPER_STRING);
+        LinkedHashMap<String, Rotor> available =
+            navalRotors(alpha, "I", "II", "III");
+        available.putAll(navalRotors(alpha, rotors));
+        return new Machine(alpha, rotors.length, 2, available.values());
+    }
+
+    /** Return MSG converted by searchInventory(ROTORS) with ROTORS
+     *  inserted at POSITIONS and the plugboard PLUGBOARD, in cycle
+     *  notation. */
+    static String searchEncode(String[] rotors, String positions,
+                               String plugboard, String msg) {
+        Machine mach = searchInventory(rotors);
+        mach.insertRotors(rotors);
+        mach.setRotors(positions);
+        mach.setPlugboard(new Permutation(plugboard, mach.alphabet()));
+        return mach.convert(msg);
+    }
+
     /** The mapping of the upper-case alphabet by NAVALA. */
     static final HashMap<String, String> NAVALA_MAP = new HashMap<>();
     static {
@@ -16,7 +16,17 @@ public class UnitTest {
         }
         System.exit(textui.runClasses(PermutationTest.class,
                 MovingRotorTest.class,
-                MachineTest.class));
+                AlphabetTest.class,
+                MainTest.class,
+                MachineTest.class,
+                GroupWriterTest.class,
+                ConfigImageTest.class,
+                ConfigParserTest.class,
+                CribSearchTest.class,
+                KeySearchTest.class,
+                BatchEncoderTest.class,
+                EnigmaServerTest.class,
+                MappedFileEncoderTest.class));
     }
 
 }